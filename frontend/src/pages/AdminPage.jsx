@@ -2,7 +2,7 @@ import { useState, useEffect } from 'react';
 import { Navigate } from 'react-router-dom';
 import { Plus, Pencil, Trash2, X, Package, DollarSign, BarChart3, ShoppingCart } from 'lucide-react';
 import { useAuth } from '../context/AuthContext';
-import { productAPI } from '../services/api';
+import { productAPI, orderAPI } from '../services/api';
 
 const EMPTY_PRODUCT = { name: '', description: '', price: '', stockQuantity: '', category: 'Hardware', image: '' };
 
@@ -21,8 +21,9 @@ export default function AdminPage() {
     const [form, setForm] = useState(EMPTY_PRODUCT);
     const [saving, setSaving] = useState(false);
     const [deleteConfirm, setDeleteConfirm] = useState(null);
+    const [orderStats, setOrderStats] = useState(null);
 
-    useEffect(() => { loadProducts(); }, []);
+    useEffect(() => { loadProducts(); loadOrderStats(); }, []);
 
     if (!isAuthenticated) return <Navigate to="/login" state={{ from: '/admin' }} />;
     if (!isAdmin) {
@@ -44,6 +45,13 @@ export default function AdminPage() {
         finally { setLoading(false); }
     };
 
+    const loadOrderStats = async () => {
+        try {
+            const res = await orderAPI.getStats(0, 0, 0);
+            setOrderStats(res.data);
+        } catch { setOrderStats(null); }
+    };
+
     const openCreate = () => { setForm(EMPTY_PRODUCT); setModal('create'); };
     const openEdit = (product) => { setForm({ ...product, price: String(product.price), stockQuantity: String(product.stockQuantity) }); setModal('edit'); };
 
@@ -96,6 +104,10 @@ export default function AdminPage() {
                     { icon: Package, label: 'Products', value: products.length, color: '#6366f1' },
                     { icon: BarChart3, label: 'Total Items', value: totalItems.toLocaleString(), color: '#06b6d4' },
                     { icon: DollarSign, label: 'Inventory Value', value: `$${totalValue.toLocaleString(undefined, { maximumFractionDigits: 0 })}`, color: '#10b981' },
+                    ...(orderStats ? [
+                        { icon: ShoppingCart, label: 'Orders', value: orderStats.orders.toLocaleString(), color: '#f59e0b' },
+                        { icon: DollarSign, label: 'Order Revenue', value: `$${Number(orderStats.sales.revenue).toLocaleString(undefined, { maximumFractionDigits: 0 })}`, color: '#ec4899' },
+                    ] : []),
                 ].map((stat, i) => (
                     <div key={i} className="stat-card">
                         <stat.icon size={20} color={stat.color} style={{ marginBottom: '0.75rem' }} />
@@ -1,4 +1,4 @@
-import { useState } from 'react';
+import { useRef, useState } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { CreditCard, Truck, ShieldCheck, ArrowLeft, Check } from 'lucide-react';
 import { useCart } from '../context/CartContext';
@@ -51,14 +51,21 @@ export default function CheckoutPage() {
         cardNumber: '', expiry: '', cvv: '', nameOnCard: '',
     });
 
+    /* One key per checkout: a retried Place Order returns the first order instead of a second one */
+    const idempotencyKey = useRef(crypto.randomUUID?.() ?? `${Date.now()}-${Math.random().toString(36).slice(2)}`);
     const updateForm = (field, value) => setForm((prev) => ({ ...prev, [field]: value }));
 
     const handlePlaceOrder = async () => {
         setLoading(true);
         try {
-            for (const item of items) {
-                await orderAPI.create({ productId: item.id, quantity: item.quantity, customerName: `${form.firstName} ${form.lastName}` });
-            }
+            await orderAPI.create({
+                items: items.map((item) => ({ productId: item.id, quantity: item.quantity })),
+                customerName: `${form.firstName} ${form.lastName}`,
+                email: form.email,
+                address: form.address,
+                city: form.city,
+                zip: form.zip,
+            }, idempotencyKey.current);
         } catch {
             /* Order placed locally even if API is down */
         }
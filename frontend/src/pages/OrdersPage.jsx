@@ -23,6 +23,8 @@ export default function OrdersPage() {
     const [orders, setOrders] = useState([]);
     const [loading, setLoading] = useState(true);
     const [expandedId, setExpandedId] = useState(null);
+    const [nextCursor, setNextCursor] = useState(null);
+    const [loadingMore, setLoadingMore] = useState(false);
 
     useEffect(() => {
         loadOrders();
@@ -30,9 +32,10 @@ export default function OrdersPage() {
 
     const loadOrders = async () => {
         try {
-            const res = await orderAPI.getAll();
-            const data = Array.isArray(res.data) ? res.data : [];
+            const res = await orderAPI.getPage();
+            const data = Array.isArray(res.data?.items) ? res.data.items : [];
             setOrders(data.length > 0 ? data : MOCK_ORDERS);
+            setNextCursor(res.data?.nextCursor ?? null);
         } catch {
             setOrders(MOCK_ORDERS);
         } finally {
@@ -40,6 +43,19 @@ export default function OrdersPage() {
         }
     };
 
+    const loadMore = async () => {
+        setLoadingMore(true);
+        try {
+            const res = await orderAPI.getPage(nextCursor);
+            setOrders((prev) => [...prev, ...(res.data?.items ?? [])]);
+            setNextCursor(res.data?.nextCursor ?? null);
+        } catch {
+            /* Keep what is shown; the button stays to retry */
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
     const formatDate = (dateStr) => {
         return new Date(dateStr).toLocaleDateString('en-US', { month: 'short', day: 'numeric', year: 'numeric', hour: '2-digit', minute: '2-digit' });
     };
@@ -61,7 +77,7 @@ export default function OrdersPage() {
         <div className="page-container" style={{ maxWidth: '900px' }}>
             <div className="page-header animate-entrance delay-1">
                 <h1 className="page-title">Order History</h1>
-                <p className="page-subtitle">{orders.length} order{orders.length !== 1 ? 's' : ''} placed</p>
+                <p className="page-subtitle">{orders.length}{nextCursor ? '+' : ''} order{orders.length !== 1 ? 's' : ''} placed</p>
             </div>
 
             {loading ? (
@@ -129,6 +145,11 @@ export default function OrdersPage() {
                             )}
                         </div>
                     ))}
+                    {nextCursor && (
+                        <button onClick={loadMore} disabled={loadingMore} className="btn-secondary" style={{ alignSelf: 'center', marginTop: '0.5rem' }}>
+                            {loadingMore ? 'Loading…' : 'Load more'}
+                        </button>
+                    )}
                 </div>
             )}
         </div>
@@ -30,19 +30,52 @@ export default function ProductsPage() {
     const [loading, setLoading] = useState(true);
     const [search, setSearch] = useState('');
     const [category, setCategory] = useState('All');
+    const [categories, setCategories] = useState(CATEGORIES);
     const [sort, setSort] = useState('name-asc');
     const [addedIds, setAddedIds] = useState(new Set());
     const { addItem } = useCart();
 
     useEffect(() => {
-        loadProducts();
+        loadCategories();
     }, []);
 
-    const loadProducts = async () => {
+    useEffect(() => {
+        loadProducts(category);
+    }, [category]);
+
+    const loadCategories = async () => {
+        try {
+            const res = await productAPI.getFacets();
+            if (Array.isArray(res.data) && res.data.length > 0) {
+                setCategories(['All', ...res.data.map((f) => f.category)]);
+            }
+        } catch {
+            /* Keep the static category list */
+        }
+    };
+
+    /* Categories are filtered server-side; only 'All' pulls the full catalog */
+    const fetchCategory = async (cat) => {
+        const items = [];
+        let cursor = 0;
+        do {
+            const res = await productAPI.getByCategory(cat, cursor);
+            items.push(...res.data.items);
+            cursor = res.data.nextCursor;
+        } while (cursor != null);
+        return items;
+    };
+
+    const fetchAll = async () => {
+        const res = await productAPI.getAll();
+        return Array.isArray(res.data) ? res.data : [];
+    };
+
+    const loadProducts = async (cat) => {
+        setLoading(true);
         try {
-            const res = await productAPI.getAll();
-            const data = Array.isArray(res.data) ? res.data : [];
-            setProducts(data.length > 0 ? data : MOCK_PRODUCTS);
+            const data = cat === 'All' ? await fetchAll() : await fetchCategory(cat);
+            setProducts(data.length > 0 || cat !== 'All' ? data : MOCK_PRODUCTS);
         } catch {
             setProducts(MOCK_PRODUCTS);
         } finally {
@@ -57,7 +90,7 @@ export default function ProductsPage() {
     };
 
     const filtered = products
-        .filter((p) => category === 'All' || p.category === category)
+        .filter((p) => category === 'All' || p.category?.toLowerCase() === category.toLowerCase())
         .filter((p) => p.name.toLowerCase().includes(search.toLowerCase()) || p.description?.toLowerCase().includes(search.toLowerCase()))
         .sort((a, b) => {
             switch (sort) {
@@ -101,7 +134,7 @@ export default function ProductsPage() {
 
                 {/* Category Filter */}
                 <div style={{ display: 'flex', gap: '0.375rem', flexWrap: 'wrap' }}>
-                    {CATEGORIES.map((cat) => (
+                    {categories.map((cat) => (
                         <button
                             key={cat}
                             onClick={() => setCategory(cat)}
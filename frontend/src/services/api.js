@@ -41,15 +41,25 @@ export const authAPI = {
 export const productAPI = {
     getAll: () => api.get('/products'),
     getById: (id) => api.get(`/products/${id}`),
+    getByCategory: (category, cursor = 0, size = 200) =>
+        api.get('/products', { params: { category, cursor, size } }),
+    getFacets: () => api.get('/products/facets'),
     create: (product) => api.post('/products', product),
     update: (id, product) => api.put(`/products/${id}`, product),
     delete: (id) => api.delete(`/products/${id}`),
 };
 
 export const orderAPI = {
-    create: (order) => api.post('/orders', order),
+    /* Retries of one checkout send the same key, so a timed-out request
+       that did go through is returned instead of ordered twice */
+    create: (order, idempotencyKey) =>
+        api.post('/orders', order, idempotencyKey ? { headers: { 'Idempotency-Key': idempotencyKey } } : undefined),
     getAll: () => api.get('/orders'),
+    getPage: (cursor, size = 50, status) =>
+        api.get('/orders/page', { params: { cursor, size, status } }),
     getById: (id) => api.get(`/orders/${id}`),
+    getStats: (top = 10, minutes = 60, hours = 24) =>
+        api.get('/orders/stats', { params: { top, minutes, hours } }),
 };
 
 export const metricsAPI = {
@@ -0,0 +1,130 @@
+import http from 'k6/http';
+import { check, sleep } from 'k6';
+import exec from 'k6/execution';
+import { Trend } from 'k6/metrics';
+
+// Exports a million-row catalog as NDJSON while sampling the service's heap.
+// Start the product-service with a heap big enough to hold the table (a million
+// entities need several hundred MB), so a buffered export would still complete, and
+// let the heap threshold tell a streamed export from a buffered one:
+//   JAVA_TOOL_OPTIONS=-Xmx1g mvn spring-boot:run
+//   k6 run -e PRODUCT_URL=http://localhost:8081 load-test/catalog-export.js
+// The export must return one line per product: the rows seeded plus those already in
+// the table (counted from /products/facets). SEED=false skips seeding when the table is
+// already large; GZIP=true exports compressed. MAX_HEAP_MB (default 256) caps the heap
+// left live after garbage collection, which a buffered export fills with the table.
+
+// ===== Custom Metrics =====
+const exportTrend = new Trend('export_duration');
+const heapUsed = new Trend('heap_used_mb');
+const liveHeap = new Trend('heap_live_mb');
+
+// ===== Load Test Options =====
+const ROWS = parseInt(__ENV.ROWS || '1000000');
+const BATCH = 10000;
+const SEED = (__ENV.SEED || 'true') === 'true';
+const GZIP = (__ENV.GZIP || 'false') === 'true';
+const MAX_HEAP_MB = parseInt(__ENV.MAX_HEAP_MB || '256');
+
+export const options = {
+  setupTimeout: '15m',
+  discardResponseBodies: true,
+  scenarios: {
+    export: {
+      executor: 'shared-iterations',
+      exec: 'exportCatalog',
+      vus: 1,
+      iterations: 1,
+      maxDuration: '10m',
+    },
+    heap: {
+      executor: 'constant-vus',
+      exec: 'sampleHeap',
+      vus: 1,
+      duration: '10m',
+    },
+  },
+  thresholds: {
+    checks: ['rate==1'],
+    heap_live_mb: [`max<${MAX_HEAP_MB}`],
+  },
+};
+
+// ===== Configuration =====
+const PRODUCT_URL = __ENV.PRODUCT_URL || 'http://localhost:8081';
+
+// ===== Test Setup =====
+export function setup() {
+  const existing = catalogSize();
+  if (!SEED) return { expected: existing };
+  const run = Date.now();
+  for (let start = 0; start < ROWS; start += BATCH) {
+    const lines = [];
+    for (let i = start; i < Math.min(start + BATCH, ROWS); i++) {
+      lines.push(JSON.stringify({
+        name: `Export ${run}-${i}`,
+        description: 'Catalog export benchmark row',
+        price: 9.99,
+        stockQuantity: i % 50,
+        category: `Category ${i % 20}`,
+      }));
+    }
+    const res = http.post(`${PRODUCT_URL}/products/bulk`, lines.join('\n'), {
+      headers: { 'Content-Type': 'application/x-ndjson' },
+      timeout: '120s',
+    });
+    if (res.status !== 200) {
+      throw new Error(`Seeding failed at row ${start}: ${res.status}`);
+    }
+  }
+  return { expected: existing + ROWS };
+}
+
+function catalogSize() {
+  const res = http.get(`${PRODUCT_URL}/products/facets`, { responseType: 'text' });
+  if (res.status !== 200) {
+    throw new Error(`Could not count the catalog: ${res.status}`);
+  }
+  return JSON.parse(res.body).reduce((total, facet) => total + facet.count, 0);
+}
+
+function countLines(body) {
+  let lines = 0;
+  for (let i = body.indexOf('\n'); i !== -1; i = body.indexOf('\n', i + 1)) {
+    lines++;
+  }
+  return lines;
+}
+
+// ===== Main Test Scenario =====
+export function exportCatalog(data) {
+  const headers = GZIP ? { 'Accept-Encoding': 'gzip' } : { 'Accept-Encoding': 'identity' };
+  // k6 inflates gzip bodies, so the lines are counted the same way either way
+  const res = http.get(`${PRODUCT_URL}/products/export`, { headers, timeout: '10m', responseType: 'text' });
+  const lines = res.status === 200 ? countLines(res.body) : 0;
+  check(res, {
+    'export completed': (r) => r.status === 200,
+    'ndjson': (r) => (r.headers['Content-Type'] || '').startsWith('application/x-ndjson'),
+    'one line per product': () => lines === data.expected,
+  });
+  if (lines !== data.expected) {
+    console.error(`Export returned ${lines} lines, expected ${data.expected}`);
+  }
+  exportTrend.add(res.timings.duration);
+  // Heap sampling has served its purpose once the export is done
+  exec.test.abort(`export finished in ${Math.round(res.timings.duration)} ms`);
+}
+
+export function sampleHeap() {
+  const res = http.get(`${PRODUCT_URL}/actuator/metrics/jvm.memory.used?tag=area:heap`, {
+    responseType: 'text',
+  });
+  if (res.status === 200) {
+    heapUsed.add(JSON.parse(res.body).measurements[0].value / (1024 * 1024));
+  }
+  const live = http.get(`${PRODUCT_URL}/actuator/metrics/jvm.gc.live.data.size`, { responseType: 'text' });
+  if (live.status === 200) {
+    liveHeap.add(JSON.parse(live.body).measurements[0].value / (1024 * 1024));
+  }
+  sleep(0.5);
+}
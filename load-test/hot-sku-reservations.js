@@ -0,0 +1,82 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
+
+// Sustained reservations/sec on one hot SKU: database row path vs the in-memory inventory engine.
+// Start the product-service with PRODUCT_INVENTORY_ENGINE_ENABLED=true, then run both modes:
+//   k6 run -e MODE=db     -e PRODUCT_URL=http://localhost:8081 load-test/hot-sku-reservations.js
+//   k6 run -e MODE=engine -e PRODUCT_URL=http://localhost:8081 load-test/hot-sku-reservations.js
+// Compare the reservations rate (and reservation_duration p95) printed in the two summaries.
+
+// ===== Custom Metrics =====
+const reservations = new Counter('reservations');
+const rejections = new Counter('rejections');
+const reservationTrend = new Trend('reservation_duration');
+
+// ===== Load Test Options =====
+const MODE = __ENV.MODE || 'engine';
+const DURATION = __ENV.DURATION || '60s';
+// Enough stock that the run measures throughput, not sell-out
+const INITIAL_STOCK = parseInt(__ENV.INITIAL_STOCK || '10000000');
+
+export const options = {
+  scenarios: {
+    sustained: {
+      executor: 'constant-vus',
+      vus: parseInt(__ENV.VUS || '200'),
+      duration: DURATION,
+    },
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+};
+
+// ===== Configuration =====
+const PRODUCT_URL = __ENV.PRODUCT_URL || 'http://localhost:8081';
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+// ===== Test Setup =====
+export function setup() {
+  const product = {
+    name: `Flash Sale SKU ${Date.now()}`,
+    description: 'Hot SKU reservation benchmark',
+    price: 19.99,
+    stockQuantity: INITIAL_STOCK,
+    category: 'Benchmark',
+  };
+  const res = http.post(`${PRODUCT_URL}/products`, JSON.stringify(product), { headers: JSON_HEADERS });
+  if (res.status !== 201) {
+    throw new Error(`Failed to create benchmark product: ${res.status} ${res.body}`);
+  }
+  const productId = JSON.parse(res.body).id;
+  if (MODE === 'engine') {
+    const hot = http.post(`${PRODUCT_URL}/products/${productId}/hot`);
+    if (hot.status !== 200) {
+      throw new Error(`Inventory engine unavailable (${hot.status}); start the service with it enabled`);
+    }
+  }
+  return { productId };
+}
+
+// ===== Main Test Scenario =====
+export default function (data) {
+  const res = http.patch(`${PRODUCT_URL}/products/${data.productId}/stock?quantity=1`);
+  check(res, {
+    'reserved': (r) => r.status === 200,
+  });
+  if (res.status === 200) reservations.add(1);
+  if (res.status === 409) rejections.add(1);
+  reservationTrend.add(res.timings.duration);
+}
+
+// ===== Teardown Summary =====
+export function teardown(data) {
+  if (MODE === 'engine') {
+    // Hand the unsold lease back so the final stock below is exact
+    http.del(`${PRODUCT_URL}/products/${data.productId}/hot`);
+  }
+  const res = http.get(`${PRODUCT_URL}/products/${data.productId}`);
+  console.log(`[${MODE}] final stock: ${JSON.parse(res.body).stockQuantity} (initial ${INITIAL_STOCK})`);
+  http.del(`${PRODUCT_URL}/products/${data.productId}`);
+}
@@ -9,14 +9,22 @@ const orderPostTrend = new Trend('order_post_duration');
 const errorCounter = new Counter('errors');
 
 // ===== Load Test Options =====
+// VUS=500 holds a fixed load for DURATION instead of the HPA ramp, e.g. to compare
+// platform and virtual threads (VIRTUAL_THREADS_ENABLED) on throughput and p99
+const FIXED_VUS = Number(__ENV.VUS || 0);
+
 export const options = {
-  stages: [
+  stages: FIXED_VUS ? [
+    { duration: '30s', target: FIXED_VUS },                  // Ramp up
+    { duration: __ENV.DURATION || '3m', target: FIXED_VUS }, // Hold
+  ] : [
     { duration: '30s', target: 50 },    // Ramp up to 50 VUs
     { duration: '1m',  target: 200 },   // Ramp up to 200 VUs
     { duration: '2m',  target: 500 },   // Spike to 500 VUs (triggers HPA)
     { duration: '1m',  target: 200 },   // Scale back to 200
     { duration: '30s', target: 0 },     // Ramp down to 0
   ],
+  summaryTrendStats: ['avg', 'med', 'p(95)', 'p(99)', 'max'],
   thresholds: {
     http_req_duration: ['p(95)<500'],   // 95th percentile under 500ms
     http_req_failed: ['rate<0.05'],     // Error rate under 5%
@@ -0,0 +1,53 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
+
+// Order creation throughput, one request at a time per VU with no think time, so orders/sec
+// is bounded by how fast order-service can commit. Run once per mode and compare the
+// orders_created rate and created_order_duration p(99):
+//   docker run --rm -p 9090:8080 -v $PWD/load-test/product-stub:/home/wiremock wiremock/wiremock:3.3.1
+//   PRODUCT_SERVICE_URL=http://localhost:9090 ORDER_BATCHING_ENABLED=false mvn -f order-service spring-boot:run
+//   k6 run -e ORDER_URL=http://localhost:8082 -e VUS=200 load-test/order-group-commit.js
+// then again with ORDER_BATCHING_ENABLED=true, watching orders_batch_size and
+// orders_batch_wait_seconds on /actuator/prometheus.
+
+// ===== Custom Metrics =====
+const created = new Counter('orders_created');
+const createdTrend = new Trend('created_order_duration');
+
+// ===== Load Test Options =====
+export const options = {
+  scenarios: {
+    orders: {
+      executor: 'constant-vus',
+      vus: parseInt(__ENV.VUS || '200'),
+      duration: __ENV.DURATION || '60s',
+    },
+  },
+  summaryTrendStats: ['avg', 'med', 'p(95)', 'p(99)', 'max'],
+};
+
+// ===== Configuration =====
+const ORDER_URL = __ENV.ORDER_URL || 'http://localhost:8082';
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+// ===== Main Test Scenario =====
+export default function () {
+  const order = {
+    productId: 1 + Math.floor(Math.random() * 100),
+    quantity: 1,
+    customerName: `Load User ${__VU}`,
+    email: `load${__VU}@example.com`,
+    address: '1 Benchmark Way',
+    city: 'Testville',
+    zip: '12345',
+  };
+  const res = http.post(`${ORDER_URL}/orders`, JSON.stringify(order), { headers: JSON_HEADERS });
+  check(res, {
+    'order created': (r) => r.status === 201,
+  });
+  if (res.status === 201) {
+    created.add(1);
+    createdTrend.add(res.timings.duration);
+  }
+}
@@ -0,0 +1,51 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Trend } from 'k6/metrics';
+
+// Walks order listing pages from the newest order down to DEPTH pages, with and without
+// a status filter. With keyset pagination every page is an index range scan, so
+// deep_page_latency should match shallow_page_latency (first 10 pages) however large the table is.
+// Seed a large orders table directly in order_db first (see README), then:
+//   k6 run -e ORDER_URL=http://localhost:8082 -e DEPTH=2000 load-test/order-listing.js
+
+// ===== Custom Metrics =====
+const shallowPage = new Trend('shallow_page_latency', true);
+const deepPage = new Trend('deep_page_latency', true);
+
+// ===== Load Test Options =====
+const ORDER_URL = __ENV.ORDER_URL || 'http://localhost:8082';
+const DEPTH = parseInt(__ENV.DEPTH || '2000');
+const SIZE = parseInt(__ENV.SIZE || '50');
+const STATUSES = ['', 'CONFIRMED', 'SHIPPED'];
+
+export const options = {
+  scenarios: {
+    walk: {
+      executor: 'per-vu-iterations',
+      vus: 6,
+      iterations: 1,
+      maxDuration: '30m',
+    },
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+};
+
+export default function () {
+  const status = STATUSES[(__VU - 1) % STATUSES.length];
+  let cursor = '';
+  for (let page = 1; page <= DEPTH; page++) {
+    const query = `size=${SIZE}` + (status ? `&status=${status}` : '') + (cursor ? `&cursor=${cursor}` : '');
+    const res = http.get(`${ORDER_URL}/orders/page?${query}`, { tags: { name: 'orders_page' } });
+    check(res, { 'page 200': (r) => r.status === 200 });
+    if (res.status !== 200) {
+      return;
+    }
+    (page <= 10 ? shallowPage : deepPage).add(res.timings.duration);
+    cursor = res.json('nextCursor');
+    if (!cursor) {
+      return;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
+
+// Order creation against a stub product-service with injected latency (lognormal, median 40ms).
+// Reservations of product 999 always answer after 5s, so SLOW_RATIO of the orders exercise the call deadline
+// and, above the breaker's failure threshold, the circuit breaker.
+//   docker run --rm -p 9090:8080 -v $PWD/load-test/product-stub:/home/wiremock wiremock/wiremock:3.3.1
+//   PRODUCT_SERVICE_URL=http://localhost:9090 mvn -f order-service spring-boot:run
+//   k6 run -e ORDER_URL=http://localhost:8082 -e SLOW_RATIO=0.1 load-test/order-product-client.js
+// Compare created_order_duration p95 and the 503 count across SLOW_RATIO values, and watch
+// httpcomponents_httpclient_pool_* and circuitbreaker_state on /actuator/prometheus.
+
+// ===== Custom Metrics =====
+const created = new Counter('orders_created');
+const unavailable = new Counter('orders_unavailable');
+const createdTrend = new Trend('created_order_duration');
+const unavailableTrend = new Trend('unavailable_order_duration');
+
+// ===== Load Test Options =====
+const SLOW_RATIO = parseFloat(__ENV.SLOW_RATIO || '0');
+
+export const options = {
+  scenarios: {
+    orders: {
+      executor: 'constant-arrival-rate',
+      rate: parseInt(__ENV.RATE || '200'),
+      timeUnit: '1s',
+      duration: __ENV.DURATION || '60s',
+      preAllocatedVUs: 100,
+      maxVUs: 1000,
+    },
+  },
+  thresholds: {
+    created_order_duration: ['p(95)<500'],
+  },
+};
+
+// ===== Configuration =====
+const ORDER_URL = __ENV.ORDER_URL || 'http://localhost:8082';
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+// ===== Main Test Scenario =====
+export default function () {
+  const productId = Math.random() < SLOW_RATIO ? 999 : 1 + Math.floor(Math.random() * 100);
+  const order = {
+    productId,
+    quantity: 1,
+    customerName: `Load User ${__VU}`,
+    email: `load${__VU}@example.com`,
+    address: '1 Benchmark Way',
+    city: 'Testville',
+    zip: '12345',
+  };
+  const res = http.post(`${ORDER_URL}/orders`, JSON.stringify(order), { headers: JSON_HEADERS });
+  check(res, {
+    'created or failed fast': (r) => r.status === 201 || r.status === 503,
+  });
+  if (res.status === 201) {
+    created.add(1);
+    createdTrend.add(res.timings.duration);
+  } else if (res.status === 503) {
+    unavailable.add(1);
+    unavailableTrend.add(res.timings.duration);
+  }
+}
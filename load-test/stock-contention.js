@@ -0,0 +1,75 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
+
+// Hammers PATCH /products/{id}/stock on a single hot SKU and verifies nothing was oversold.
+// Run against the product-service directly (the gateway does not route PATCH):
+//   k6 run -e PRODUCT_URL=http://localhost:8081 load-test/stock-contention.js
+// Compare the http_reqs rate and decrement_duration against a build of the previous
+// read-modify-write implementation to see the throughput difference on hot SKUs.
+
+// ===== Custom Metrics =====
+const decrementsAccepted = new Counter('decrements_accepted');
+const decrementsRejected = new Counter('decrements_rejected');
+const decrementTrend = new Trend('decrement_duration');
+
+// ===== Load Test Options =====
+const INITIAL_STOCK = parseInt(__ENV.INITIAL_STOCK || '1000');
+
+export const options = {
+  scenarios: {
+    hot_sku: {
+      executor: 'shared-iterations',
+      vus: parseInt(__ENV.VUS || '100'),
+      iterations: INITIAL_STOCK * 2,   // Twice the stock, so half of the requests must be rejected
+      maxDuration: '2m',
+    },
+  },
+  thresholds: {
+    decrements_accepted: [`count<=${INITIAL_STOCK}`],
+  },
+};
+
+// ===== Configuration =====
+const PRODUCT_URL = __ENV.PRODUCT_URL || 'http://localhost:8081';
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+// ===== Test Setup =====
+export function setup() {
+  const product = {
+    name: `Hot SKU ${Date.now()}`,
+    description: 'Stock contention benchmark',
+    price: 9.99,
+    stockQuantity: INITIAL_STOCK,
+    category: 'Benchmark',
+  };
+  const res = http.post(`${PRODUCT_URL}/products`, JSON.stringify(product), { headers: JSON_HEADERS });
+  if (res.status !== 201) {
+    throw new Error(`Failed to create benchmark product: ${res.status} ${res.body}`);
+  }
+  return { productId: JSON.parse(res.body).id };
+}
+
+// ===== Main Test Scenario =====
+export default function (data) {
+  const res = http.patch(`${PRODUCT_URL}/products/${data.productId}/stock?quantity=1`);
+  check(res, {
+    'status is 200 or 409': (r) => r.status === 200 || r.status === 409,
+  });
+  if (res.status === 200) decrementsAccepted.add(1);
+  if (res.status === 409) decrementsRejected.add(1);
+  decrementTrend.add(res.timings.duration);
+}
+
+// ===== Teardown Summary =====
+export function teardown(data) {
+  const res = http.get(`${PRODUCT_URL}/products/${data.productId}`);
+  const stock = JSON.parse(res.body).stockQuantity;
+  console.log(`Final stock: ${stock} (initial ${INITIAL_STOCK})`);
+  // Every unit must have been sold exactly once: a lost update leaves stock behind while
+  // the decrements_accepted threshold catches acknowledgements beyond the initial stock.
+  if (stock !== 0) {
+    console.error(`Expected stock to be exhausted, found ${stock}`);
+  }
+  http.del(`${PRODUCT_URL}/products/${data.productId}`);
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.order.client;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Deadline of the product-service call running on the current thread. The HTTP client
+ * reads it when building each request, so pool lease and response timeouts never exceed
+ * what is left of the call's budget.
+ */
+public final class CallDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private CallDeadline() {
+    }
+
+    public static <T> T within(Duration budget, Supplier<T> call) {
+        Long outer = DEADLINE.get();
+        long deadline = System.nanoTime() + budget.toNanos();
+        // A nested call cannot extend the deadline it runs under
+        DEADLINE.set(outer != null ? Math.min(outer, deadline) : deadline);
+        try {
+            return call.get();
+        } finally {
+            if (outer != null) {
+                DEADLINE.set(outer);
+            } else {
+                DEADLINE.remove();
+            }
+        }
+    }
+
+    /** Time left for the current call, or null when no deadline is set. Never negative. */
+    public static Duration remaining() {
+        Long deadline = DEADLINE.get();
+        return deadline != null ? Duration.ofNanos(Math.max(0, deadline - System.nanoTime())) : null;
+    }
+}
@@ -0,0 +1,152 @@
+package com.ecommerce.order.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Count-based circuit breaker. While CLOSED every call is allowed and the outcomes of the
+ * last {@code windowSize} calls are kept; once at least {@code minimumCalls} are recorded
+ * and the failure rate reaches {@code failureRateThreshold} the breaker OPENs and rejects
+ * calls for {@code openDuration}. It then goes HALF_OPEN and lets {@code probeCalls}
+ * through: all succeeding closes it again, any failure re-opens it.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int probeCalls;
+    private final Counter rejected;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+            Duration openDuration, int probeCalls, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.probeCalls = probeCalls;
+        this.outcomes = new boolean[windowSize];
+        Gauge.builder("circuitbreaker.state", this, breaker -> breaker.state.ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("circuitbreaker.calls.rejected")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /** Whether a call may go ahead; every permitted call must report {@link #onSuccess} or {@link #onFailure}. */
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN && probesStarted < probeCalls) {
+                probesStarted++;
+                return true;
+            }
+            if (state == State.CLOSED) {
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void onSuccess() {
+        record(true);
+    }
+
+    public void onFailure() {
+        record(false);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    private void record(boolean success) {
+        lock.lock();
+        try {
+            switch (state) {
+                case HALF_OPEN -> {
+                    if (!success) {
+                        transition(State.OPEN);
+                    } else if (++probesSucceeded >= probeCalls) {
+                        transition(State.CLOSED);
+                    }
+                }
+                case CLOSED -> {
+                    if (recorded == windowSize) {
+                        if (!outcomes[next]) {
+                            failures--;
+                        }
+                    } else {
+                        recorded++;
+                    }
+                    outcomes[next] = success;
+                    if (!success) {
+                        failures++;
+                    }
+                    next = (next + 1) % windowSize;
+                    if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+                        transition(State.OPEN);
+                    }
+                }
+                case OPEN -> {
+                    // A call admitted before the breaker opened; its outcome no longer matters
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void transition(State target) {
+        logger.warn("Circuit breaker '{}' {} -> {}", name, state, target);
+        state = target;
+        switch (target) {
+            case OPEN -> openedAt = System.nanoTime();
+            case HALF_OPEN -> {
+                probesStarted = 0;
+                probesSucceeded = 0;
+            }
+            case CLOSED -> {
+                recorded = 0;
+                next = 0;
+                failures = 0;
+            }
+        }
+    }
+}
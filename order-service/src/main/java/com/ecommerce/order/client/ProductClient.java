@@ -0,0 +1,115 @@
+package com.ecommerce.order.client;
+
+import com.ecommerce.order.dto.ProductDTO;
+import com.ecommerce.order.dto.StockReservationRequest;
+import com.ecommerce.order.dto.StockReservationResult;
+import com.ecommerce.order.exception.ProductServiceException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Calls to product-service. Each call runs under a {@link CallDeadline} and through a
+ * {@link CircuitBreaker}: while product-service is failing, calls fail fast instead of
+ * holding request threads for the full timeout. 4xx answers (unknown product,
+ * insufficient stock) mean product-service is healthy and count as successes.
+ */
+@Component
+public class ProductClient {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.service.url}")
+    private String productServiceUrl;
+
+    @Value("${product.client.deadline:2s}")
+    private Duration deadline;
+
+    @Value("${product.client.circuit-breaker.window-size:20}")
+    private int windowSize;
+
+    @Value("${product.client.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${product.client.circuit-breaker.failure-rate-threshold:50}")
+    private double failureRateThreshold;
+
+    @Value("${product.client.circuit-breaker.open-duration:10s}")
+    private Duration openDuration;
+
+    @Value("${product.client.circuit-breaker.probe-calls:3}")
+    private int probeCalls;
+
+    private CircuitBreaker circuitBreaker;
+
+    @PostConstruct
+    void init() {
+        circuitBreaker = new CircuitBreaker("product-service", windowSize, minimumCalls,
+                failureRateThreshold / 100, openDuration, probeCalls, meterRegistry);
+    }
+
+    public ProductDTO getProduct(Long productId) {
+        return call(() -> restTemplate.getForObject(productServiceUrl + "/products/{id}", ProductDTO.class,
+                productId));
+    }
+
+    /**
+     * Takes stock for every line or none; a 409 carries the available stock per line.
+     * product-service makes a reservation with the same {@code reservationId} once.
+     */
+    public StockReservationResult reserveStock(String reservationId, List<StockReservationRequest.Line> lines) {
+        StockReservationRequest request = new StockReservationRequest(lines);
+        request.setReservationId(reservationId);
+        return call(() -> restTemplate.postForObject(productServiceUrl + "/products/reservations",
+                request, StockReservationResult.class));
+    }
+
+    /** Gives stock back; product-service applies a release with the same {@code requestId} once. */
+    public void releaseStock(String requestId, List<StockReservationRequest.Line> lines) {
+        StockReservationRequest request = new StockReservationRequest(lines);
+        request.setRequestId(requestId);
+        call(() -> restTemplate.postForObject(productServiceUrl + "/products/reservations/release",
+                request, Map.class));
+    }
+
+    /**
+     * Gives back whatever the reservation {@code reservationId} took, if it was made, and
+     * stops it from being made later. Safe to repeat.
+     */
+    public void releaseReservation(String reservationId, List<StockReservationRequest.Line> lines) {
+        StockReservationRequest request = new StockReservationRequest(lines);
+        request.setReservationId(reservationId);
+        call(() -> restTemplate.postForObject(productServiceUrl + "/products/reservations/release",
+                request, Map.class));
+    }
+
+    private <T> T call(Supplier<T> request) {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new ProductServiceException("Product service is unavailable. Please try again.");
+        }
+        try {
+            T result = CallDeadline.within(deadline, request);
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (HttpClientErrorException e) {
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (RuntimeException | Error e) {
+            circuitBreaker.onFailure();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ecommerce.order.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Bounded in-heap set of product ids product-service recently answered "not found" for,
+ * used to turn away further orders for them without a product-service call. It is filled
+ * only from the 404s of reservations order-service makes anyway, never by loads of its
+ * own, so it adds no traffic to product-service. Everything else, stock included, is
+ * decided by the reservation, which is already the only call an order makes.
+ * <p>
+ * product-service announces creates on the {@code products:changed} channel; any message
+ * drops the product's entry here. Entries otherwise live {@code ttl}, in case a create is
+ * missed while Redis is unreachable.
+ */
+@Component
+public class ProductSnapshotCache implements MessageListener {
+
+    public static final String CHANNEL = "products:changed";
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSnapshotCache.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${product.snapshot.max-size:10000}")
+    private long maxSize;
+
+    @Value("${product.snapshot.ttl:1m}")
+    private Duration ttl;
+
+    private Cache<Long, Boolean> missing;
+
+    @PostConstruct
+    void init() {
+        missing = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, missing, "product-snapshots");
+    }
+
+    /** True when product-service recently said the product does not exist. */
+    public boolean isMissing(Long productId) {
+        return enabled && missing.getIfPresent(productId) != null;
+    }
+
+    public void markMissing(Long productId) {
+        if (enabled) {
+            missing.put(productId, Boolean.TRUE);
+        }
+    }
+
+    public void invalidate(Long productId) {
+        missing.invalidate(productId);
+    }
+
+    /** Message format: {@code <origin>|<type>|<productId>}, as published by product-service. */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3) {
+            return;
+        }
+        try {
+            invalidate(Long.valueOf(parts[2]));
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring malformed product change message: {}", parts[2]);
+        }
+    }
+}
@@ -1,14 +1,112 @@
 package com.ecommerce.order.config;
 
+import com.ecommerce.order.client.CallDeadline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
+/**
+ * HTTP client for order -> product calls: a pooled keep-alive connection manager with
+ * connect, pool-lease and response timeouts. Pool usage is published as
+ * {@code httpcomponents.httpclient.pool.*}; building the RestTemplate through
+ * {@link RestTemplateBuilder} adds the {@code http.client.requests} latency timer.
+ */
 @Configuration
 public class AppConfig {
 
+    @Value("${product.client.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${product.client.connect-timeout:500ms}")
+    private Duration connectTimeout;
+
+    @Value("${product.client.pool-timeout:200ms}")
+    private Duration poolTimeout;
+
+    @Value("${product.client.read-timeout:2s}")
+    private Duration readTimeout;
+
+    @Value("${product.client.keep-alive:30s}")
+    private Duration keepAlive;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager productConnectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                // Every call goes to product-service, so one route may use the whole pool
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "product-service")
+                .bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient productHttpClient(PoolingHttpClientConnectionManager productConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(productConnectionManager)
+                .setDefaultRequestConfig(defaultRequestConfig())
+                // Reuse a connection for keep-alive unless the server says otherwise
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(keepAlive))
+                .evictIdleConnections(TimeValue.of(keepAlive))
+                .evictExpiredConnections()
+                .disableAutomaticRetries()
+                .build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient productHttpClient) {
+        HttpComponentsClientHttpRequestFactory requestFactory =
+                new HttpComponentsClientHttpRequestFactory(productHttpClient);
+        requestFactory.setHttpContextFactory((method, uri) -> deadlineContext());
+        return builder.requestFactory(() -> requestFactory).build();
+    }
+
+    private RequestConfig defaultRequestConfig() {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(poolTimeout))
+                .setResponseTimeout(Timeout.of(readTimeout))
+                .build();
+    }
+
+    /** Caps the pool-lease and response timeouts by what is left of the call's deadline. */
+    private HttpClientContext deadlineContext() {
+        Duration remaining = CallDeadline.remaining();
+        if (remaining == null) {
+            return null;
+        }
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(RequestConfig.copy(defaultRequestConfig())
+                .setConnectionRequestTimeout(Timeout.of(min(poolTimeout, remaining)))
+                .setResponseTimeout(Timeout.of(min(readTimeout, remaining)))
+                .build());
+        return context;
+    }
+
+    private static Duration min(Duration configured, Duration remaining) {
+        // A zero timeout means "no timeout" to HttpClient, so an exhausted deadline becomes 1ms
+        return configured.compareTo(remaining) <= 0 ? configured : Duration.ofMillis(Math.max(1, remaining.toMillis()));
     }
 }
@@ -0,0 +1,120 @@
+package com.ecommerce.order.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Creates the indexes behind order listings, which {@code ddl-auto: update} cannot
+ * express (descending keys, INCLUDE columns). The listing indexes cover every
+ * {@code OrderSummary} column, so a page is an index-only range scan.
+ * <p>
+ * Indexes are built CONCURRENTLY on a background thread, so a large table neither blocks
+ * writes nor delays readiness. One pod at a time does the work, under an advisory lock;
+ * an index left invalid by an interrupted build is dropped and rebuilt.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.order-indexes", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OrderIndexManager implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIndexManager.class);
+
+    private static final long LOCK_KEY = 0x6f72646572696478L;
+
+    private static final String VALID_SQL = "SELECT i.indisvalid FROM pg_class c JOIN pg_index i ON i.indexrelid = c.oid "
+            + "WHERE c.relname = ?";
+
+    private static final Map<String, String> INDEXES = new LinkedHashMap<>();
+
+    static {
+        INDEXES.put("idx_orders_created_at_id", "orders (created_at DESC, id DESC) "
+                + "INCLUDE (status, product_id, product_name, quantity, total_price, customer_name)");
+        INDEXES.put("idx_orders_status_created_at_id", "orders (status, created_at DESC, id DESC) "
+                + "INCLUDE (product_id, product_name, quantity, total_price, customer_name)");
+        INDEXES.put("idx_orders_product_id", "orders (product_id)");
+        INDEXES.put("idx_orders_customer_name", "orders (customer_name, created_at DESC, id DESC)");
+        INDEXES.put("idx_orders_idempotency_key", "orders (idempotency_key) WHERE idempotency_key IS NOT NULL");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread builder = new Thread(this::ensureIndexes, "order-index-manager");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    private void ensureIndexes() {
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                // CREATE INDEX CONCURRENTLY cannot run inside a transaction block
+                con.setAutoCommit(true);
+                if (!advisoryLock(con, "pg_try_advisory_lock")) {
+                    logger.info("Another instance is managing order indexes");
+                    return null;
+                }
+                try (Statement statement = con.createStatement()) {
+                    INDEXES.forEach((name, definition) -> ensure(con, statement, name, definition));
+                } finally {
+                    advisoryLock(con, "pg_advisory_unlock");
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Could not manage order indexes: {}", e.getMessage());
+        }
+    }
+
+    private void ensure(Connection con, Statement statement, String name, String definition) {
+        try {
+            Boolean valid = isValid(con, name);
+            if (Boolean.TRUE.equals(valid)) {
+                return;
+            }
+            if (valid != null) {
+                logger.warn("Index {} is invalid (interrupted build), rebuilding", name);
+                statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+            }
+            long start = System.currentTimeMillis();
+            statement.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + definition);
+            logger.info("Created index {} in {}ms", name, System.currentTimeMillis() - start);
+        } catch (SQLException e) {
+            logger.warn("Failed to create index {}: {}", name, e.getMessage());
+        }
+    }
+
+    /** Whether the index is usable; null when it does not exist. */
+    private static Boolean isValid(Connection con, String name) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(VALID_SQL)) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getBoolean(1) : null;
+            }
+        }
+    }
+
+    private static boolean advisoryLock(Connection con, String function) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT " + function + "(?)")) {
+            ps.setLong(1, LOCK_KEY);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.ecommerce.order.config;
+
+import com.ecommerce.order.client.ProductSnapshotCache;
+import com.ecommerce.order.event.OrderChangeNotifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Subscribes the product snapshot cache to product-service's change channel, and the order
+ * statistics to the other order-service pods' changes. Redis is only used for pub/sub;
+ * while it is unreachable the container keeps retrying, missing-product entries fall back
+ * to their TTL and statistics to their periodic rebuild.
+ */
+@Configuration
+public class RedisConfig {
+
+    @Value("${product.snapshot.enabled:true}")
+    private boolean snapshotsEnabled;
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+            ProductSnapshotCache productSnapshotCache, OrderChangeNotifier orderChangeNotifier) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (snapshotsEnabled) {
+            container.addMessageListener(productSnapshotCache, new ChannelTopic(ProductSnapshotCache.CHANNEL));
+        }
+        container.addMessageListener(orderChangeNotifier, new ChannelTopic(OrderChangeNotifier.CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,79 @@
+package com.ecommerce.order.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Polls the replica's replay lag. A streaming replica that has replayed everything it
+ * received reports zero even when the primary is idle; a server that is not in recovery
+ * (one instance behind two pools, as in local setups) always reports zero. A replica
+ * whose WAL receiver is not streaming has also replayed everything it received, so it
+ * reports no lag at all and counts as unusable, as does an unreachable replica; reads
+ * then fall back to the primary. The receiver's status is only visible to roles with
+ * {@code pg_read_all_stats}; without it, a running receiver is taken as streaming.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // NULL when the replica is cut off from the primary
+    private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 "
+            + "WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status IS NULL OR status = 'streaming') "
+            + "THEN NULL "
+            + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final JdbcTemplate replica;
+    private final Duration maxLag;
+    // Unknown until the first check, so nothing is routed to an unverified replica
+    private volatile double lagSeconds = Double.NaN;
+    private volatile boolean usable;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, Duration maxLag, MeterRegistry meterRegistry) {
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.maxLag = maxLag;
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Replica replay lag in seconds; NaN when it could not be measured")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.usable", this, monitor -> monitor.usable ? 1 : 0)
+                .description("1 while read-only transactions are routed to the replica")
+                .register(meterRegistry);
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval:PT5S}")
+    public void check() {
+        boolean wasUsable = usable;
+        try {
+            Double lag = replica.queryForObject(LAG_SQL, Double.class);
+            lagSeconds = lag != null ? lag : Double.NaN;
+            usable = lag != null && lag * 1000 <= maxLag.toMillis();
+            if (lag == null && wasUsable) {
+                logger.warn("Replica is not streaming from the primary, routing reads to the primary");
+                return;
+            }
+        } catch (RuntimeException e) {
+            lagSeconds = Double.NaN;
+            usable = false;
+            if (wasUsable) {
+                logger.warn("Replica check failed, routing reads to the primary: {}", e.getMessage());
+            }
+            return;
+        }
+        if (wasUsable != usable) {
+            logger.info("Replica lag {}s (max {}), reads routed to the {}", lagSeconds, maxLag,
+                    usable ? "replica" : "primary");
+        }
+    }
+}
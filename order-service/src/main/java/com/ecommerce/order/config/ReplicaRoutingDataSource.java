@@ -0,0 +1,53 @@
+package com.ecommerce.order.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends connections for read-only transactions to the replica pool while the replica is
+ * within the lag threshold, everything else to the primary. Must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the
+ * transaction's read-only flag is only set after the transaction manager asks for its
+ * connection, so the physical connection has to be fetched lazily on first use.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+    private final Counter lagFallbacks;
+
+    public ReplicaRoutingDataSource(ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        this.primaryRoutes = routeCounter(meterRegistry, "primary");
+        this.replicaRoutes = routeCounter(meterRegistry, "replica");
+        this.lagFallbacks = routeCounter(meterRegistry, "primary-lag-fallback");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryRoutes.increment();
+            return Route.PRIMARY;
+        }
+        if (!lagMonitor.isUsable()) {
+            lagFallbacks.increment();
+            return Route.PRIMARY;
+        }
+        replicaRoutes.increment();
+        return Route.REPLICA;
+    }
+
+    private static Counter routeCounter(MeterRegistry meterRegistry, String route) {
+        return Counter.builder("datasource.routing.connections")
+                .description("Physical connections handed out per routing decision")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+}
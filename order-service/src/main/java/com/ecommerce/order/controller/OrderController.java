@@ -1,40 +1,128 @@
 package com.ecommerce.order.controller;
 
 import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderPage;
+import com.ecommerce.order.dto.OrderStats;
 import com.ecommerce.order.model.Order;
+import com.ecommerce.order.service.IdempotencyService;
+import com.ecommerce.order.service.OrderExportService;
 import com.ecommerce.order.service.OrderService;
+import com.ecommerce.order.stats.OrderStatistics;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/orders")
 @Tag(name = "Order API", description = "Order management - requires JWT authentication via API Gateway")
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderExportService exportService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private OrderStatistics orderStatistics;
+
     @PostMapping
-    @Operation(summary = "Create a new order", description = "Validates product availability and creates order")
-    public ResponseEntity<Order> createOrder(@Valid @RequestBody CreateOrderRequest request) {
-        Order order = orderService.createOrder(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(order);
+    @Operation(summary = "Create a new order",
+            description = "Validates product availability and creates order. With an Idempotency-Key header, "
+                    + "a retry returns the order created by the first request instead of creating another.")
+    public ResponseEntity<Order> createOrder(@Valid @RequestBody CreateOrderRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestHeader(value = "X-User-Name", required = false) String userName) {
+        if (idempotencyKey == null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(orderService.createOrder(request));
+        }
+        IdempotencyService.Outcome outcome = idempotencyService.createOnce(userName, idempotencyKey, request,
+                scopedKey -> orderService.createOrder(request, scopedKey));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(outcome.replayed()))
+                .body(outcome.order());
     }
 
     @GetMapping
-    @Operation(summary = "Get all orders")
+    @Operation(summary = "Get all orders", description = "Unbounded; use /orders/page for listings")
     public ResponseEntity<List<Order>> getAllOrders() {
         return ResponseEntity.ok(orderService.getAllOrders());
     }
 
+    @GetMapping("/page")
+    @Operation(summary = "Get a page of orders",
+            description = "Keyset pagination, newest first, optionally filtered by status and a [from, to) creation "
+                    + "window. Pass the previous page's nextCursor as cursor.")
+    public ResponseEntity<OrderPage> getOrderPage(@RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + OrderService.DEFAULT_PAGE_SIZE) int size) {
+        return ResponseEntity.ok(orderService.getOrderPage(status, from, to, cursor, size));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all orders as NDJSON",
+            description = "Streams one order per line from a database cursor. "
+                    + "Gzip-compressed when the client sends Accept-Encoding: gzip.")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                exportService.export(compressed);
+                compressed.finish();
+            } else {
+                exportService.export(out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Get order statistics",
+            description = "Counts per status, units and revenue per minute and per hour, and the top sellers by units, "
+                    + "from rollups kept in memory. Cancelled orders are left out of units and revenue.")
+    public ResponseEntity<OrderStats> getStats(@RequestParam(defaultValue = "10") int top,
+            @RequestParam(defaultValue = "60") int minutes,
+            @RequestParam(defaultValue = "24") int hours) {
+        return ResponseEntity.ok(orderStatistics.stats(top, minutes, hours));
+    }
+
+    @GetMapping("/stats/products/{productId}")
+    @Operation(summary = "Get sales statistics of one product")
+    public ResponseEntity<OrderStats.ProductSales> getProductStats(@PathVariable Long productId,
+            @RequestParam(defaultValue = "60") int minutes,
+            @RequestParam(defaultValue = "24") int hours) {
+        return ResponseEntity.ok(orderStatistics.productStats(productId, minutes, hours));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get order by ID")
     public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
@@ -42,7 +130,7 @@ public class OrderController {
     }
 
     @GetMapping("/status/{status}")
-    @Operation(summary = "Get orders by status")
+    @Operation(summary = "Get orders by status", description = "Unbounded; use /orders/page?status= for listings")
     public ResponseEntity<List<Order>> getOrdersByStatus(@PathVariable Order.OrderStatus status) {
         return ResponseEntity.ok(orderService.getOrdersByStatus(status));
     }
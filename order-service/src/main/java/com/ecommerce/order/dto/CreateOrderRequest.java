@@ -1,16 +1,28 @@
 package com.ecommerce.order.dto;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
+import java.util.List;
+
+/**
+ * Either {@code items} for a multi-line order, or {@code productId} and {@code quantity}
+ * for a single product as before.
+ */
 @Data
 public class CreateOrderRequest {
 
-    @NotNull(message = "Product ID is required")
+    @Valid
+    @Size(max = 100, message = "An order can have at most 100 items")
+    private List<Item> items;
+
     private Long productId;
 
-    @NotNull(message = "Quantity is required")
     @Min(value = 1, message = "Quantity must be at least 1")
     private Integer quantity;
 
@@ -23,4 +35,17 @@ public class CreateOrderRequest {
     private String city;
 
     private String zip;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        @NotNull(message = "Product ID is required")
+        private Long productId;
+
+        @NotNull(message = "Quantity is required")
+        @Min(value = 1, message = "Quantity must be at least 1")
+        private Integer quantity;
+    }
 }
@@ -0,0 +1,54 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.model.Order;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order rollups kept in memory by order-service. Units and revenue leave out cancelled
+ * orders; {@code complete} is false until the first rebuild from the table has finished.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStats {
+    private boolean complete;
+    private LocalDateTime rebuiltAt;
+    private long orders;
+    private Map<Order.OrderStatus, Long> byStatus;
+    private ProductSales sales;
+    private List<ProductSales> topSellers;
+
+    /** Sales of one product, or of all products when {@code productId} is null. */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ProductSales {
+        private Long productId;
+        private String productName;
+        private long orders;
+        private long units;
+        private BigDecimal revenue;
+        private List<Bucket> perMinute;
+        private List<Bucket> perHour;
+    }
+
+    /** Orders placed in the minute or hour starting at {@code start}. */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        private LocalDateTime start;
+        private long orders;
+        private long units;
+        private BigDecimal revenue;
+    }
+}
@@ -0,0 +1,27 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The columns an order listing shows. Selected by constructor expression, so a page never
+ * loads entities or their items, and every column is in the listing indexes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummary {
+    private Long id;
+    private Long productId;
+    private String productName;
+    private Integer quantity;
+    private BigDecimal totalPrice;
+    private Order.OrderStatus status;
+    private String customerName;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationRequest {
+    private List<Line> lines;
+    private String requestId;
+    private String reservationId;
+
+    public StockReservationRequest(List<Line> lines) {
+        this.lines = lines;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private Integer quantity;
+    }
+}
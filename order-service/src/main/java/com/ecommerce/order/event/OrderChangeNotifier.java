@@ -0,0 +1,95 @@
+package com.ecommerce.order.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans committed order changes out to the other pods over Redis pub/sub, and replays
+ * their changes locally as remote {@link OrderChangedEvent}s so in-memory rollups stay in
+ * sync. Message format: {@code <origin>|<event as JSON>}.
+ * <p>
+ * Publishing happens on a background thread so an unreachable Redis does not slow down
+ * orders; when the queue is full, changes are dropped and peers catch up at their next
+ * rebuild.
+ */
+@Component
+public class OrderChangeNotifier implements MessageListener {
+
+    public static final String CHANNEL = "orders:changed";
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderChangeNotifier.class);
+    private static final int MAX_QUEUED = 10_000;
+
+    private final String origin = UUID.randomUUID().toString();
+
+    private final ThreadPoolExecutor publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(MAX_QUEUED), runnable -> {
+                Thread thread = new Thread(runnable, "order-change-publisher");
+                thread.setDaemon(true);
+                return thread;
+            }, (task, executor) -> logger.warn("Order change queue is full, dropping a change"));
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (event.remote()) {
+            return;
+        }
+        String message;
+        try {
+            message = origin + "|" + objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to serialize change for order {}: {}", event.orderId(), e.getMessage());
+            return;
+        }
+        publisher.execute(() -> {
+            try {
+                redisTemplate.convertAndSend(CHANNEL, message);
+            } catch (Exception e) {
+                logger.warn("Failed to publish change for order {}: {}", event.orderId(), e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+        if (parts.length < 2 || origin.equals(parts[0])) {
+            return;
+        }
+        try {
+            eventPublisher.publishEvent(objectMapper.readValue(parts[1], OrderChangedEvent.class).asRemote());
+        } catch (JsonProcessingException e) {
+            logger.warn("Ignoring unreadable order change: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publisher.shutdown();
+    }
+}
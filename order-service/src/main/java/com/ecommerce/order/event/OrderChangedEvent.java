@@ -0,0 +1,50 @@
+package com.ecommerce.order.event;
+
+import com.ecommerce.order.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Published after an order is created or changes status. {@code remote} events were raised
+ * by another pod and replayed here from the {@code orders:changed} channel. The creation
+ * time and lines travel with the event, so consumers can apply it without reading the order.
+ */
+public record OrderChangedEvent(Type type, Long orderId, LocalDateTime createdAt, Order.OrderStatus previousStatus,
+        Order.OrderStatus status, List<Line> lines, boolean remote) {
+
+    public enum Type {
+        CREATED, STATUS_CHANGED
+    }
+
+    /** Units of one product in the order and what they were sold for. */
+    public record Line(Long productId, String productName, int quantity, BigDecimal amount) {
+    }
+
+    public static OrderChangedEvent created(Order order) {
+        return new OrderChangedEvent(Type.CREATED, order.getId(), order.getCreatedAt(), null, order.getStatus(),
+                linesOf(order), false);
+    }
+
+    public static OrderChangedEvent statusChanged(Order order, Order.OrderStatus previousStatus) {
+        return new OrderChangedEvent(Type.STATUS_CHANGED, order.getId(), order.getCreatedAt(), previousStatus,
+                order.getStatus(), linesOf(order), false);
+    }
+
+    OrderChangedEvent asRemote() {
+        return new OrderChangedEvent(type, orderId, createdAt, previousStatus, status, lines, true);
+    }
+
+    /** Orders that predate order items are one line of their summary product and quantity. */
+    private static List<Line> linesOf(Order order) {
+        if (order.getItems().isEmpty()) {
+            return List.of(new Line(order.getProductId(), order.getProductName(), order.getQuantity(),
+                    order.getTotalPrice()));
+        }
+        return order.getItems().stream()
+                .map(item -> new Line(item.getProductId(), item.getProductName(), item.getQuantity(),
+                        item.getLineTotal()))
+                .toList();
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecommerce.order.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of a POST /orders sent with an Idempotency-Key. The key is scoped to the user
+ * ({@code <user>:<key>}) and unique, so only one request per key can claim the record.
+ * Only successful orders are recorded; a failed request frees its key for a retry.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "uk_idempotency_keys_key", columnList = "idempotency_key", unique = true),
+        @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "idempotency_key", nullable = false, length = 400)
+    private String idempotencyKey;
+
+    /** SHA-256 of the request body, so a key reused for a different order is refused. */
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    /** The order as it was returned, replayed without touching product-service. */
+    @Column(name = "response_body", columnDefinition = "text")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public enum Status {
+        IN_PROGRESS, COMPLETED
+    }
+}
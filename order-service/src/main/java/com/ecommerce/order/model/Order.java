@@ -1,5 +1,6 @@
 package com.ecommerce.order.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -7,9 +8,12 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Table(name = "orders")
@@ -23,6 +27,8 @@ public class Order {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // productId, productName and quantity summarize the items (first product, total units)
+    // for clients that predate multi-line orders
     @NotNull(message = "Product ID is required")
     @Column(name = "product_id", nullable = false)
     private Long productId;
@@ -59,6 +65,23 @@ public class Order {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /** Scoped Idempotency-Key of the request that created the order, so a retry can find it. */
+    @JsonIgnore
+    @Column(name = "idempotency_key", length = 400, updatable = false)
+    private String idempotencyKey;
+
+    /** Loaded for up to 100 orders per query when listing, instead of one query per order. */
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
+    @OrderBy("id")
+    @Builder.Default
+    private List<OrderItem> items = new ArrayList<>();
+
+    public void addItem(OrderItem item) {
+        item.setOrder(this);
+        items.add(item);
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
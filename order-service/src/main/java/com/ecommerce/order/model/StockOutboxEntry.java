@@ -0,0 +1,70 @@
+package com.ecommerce.order.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Units to give back to product-service, written in the same transaction as the order
+ * change that frees them. The dispatcher claims pending entries into a batch, and the
+ * batch id is sent as the release's idempotency key, so a retried batch is applied once.
+ * Entries with a {@code reservationId} give back a reservation whose outcome order-service
+ * does not know; product-service releases what that reservation took, if anything.
+ */
+@Entity
+@Table(name = "stock_outbox", indexes = {
+        @Index(name = "idx_stock_outbox_batch_id", columnList = "batch_id"),
+        @Index(name = "idx_stock_outbox_dispatched_at", columnList = "dispatched_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Null for the reservation of an order that could not be saved. */
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    /** Set for the reservation of an order that was not saved, or whose reservation call failed. */
+    @Column(name = "reservation_id", length = 36)
+    private String reservationId;
+
+    @Column(name = "batch_id", length = 36)
+    private String batchId;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "dispatched_at")
+    private LocalDateTime dispatchedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    // Read from the primary: a lagging replica could miss a claim and let the order run twice
+    @Transactional
+    Optional<IdempotencyRecord> findByIdempotencyKey(String idempotencyKey);
+
+    /** Takes over a claim whose request died before completing (its pod crashed, say). */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.requestHash = :requestHash, r.createdAt = :now, r.expiresAt = :expiresAt "
+            + "WHERE r.id = :id AND r.status = com.ecommerce.order.model.IdempotencyRecord$Status.IN_PROGRESS "
+            + "AND r.createdAt < :staleBefore")
+    int takeOver(@Param("id") Long id, @Param("requestHash") String requestHash, @Param("now") LocalDateTime now,
+            @Param("expiresAt") LocalDateTime expiresAt, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.status = com.ecommerce.order.model.IdempotencyRecord$Status.COMPLETED, "
+            + "r.orderId = :orderId, r.responseBody = :responseBody, r.expiresAt = :expiresAt WHERE r.id = :id")
+    int complete(@Param("id") Long id, @Param("orderId") Long orderId, @Param("responseBody") String responseBody,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id "
+            + "AND r.status = com.ecommerce.order.model.IdempotencyRecord$Status.IN_PROGRESS")
+    int release(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
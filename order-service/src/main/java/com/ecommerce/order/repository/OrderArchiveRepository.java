@@ -0,0 +1,165 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Cold storage for orders that are done with: {@code orders_archive}, range-partitioned by
+ * month of {@code created_at}, one row per order with its items inlined as JSON. Archived
+ * orders are read-only. The table and its partitions are created here rather than by
+ * {@code ddl-auto}, which cannot express partitioning.
+ */
+@Repository
+public class OrderArchiveRepository {
+
+    private static final long PARTITION_LOCK_KEY = 0x6f72646572617263L;
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS orders_archive ("
+            + "id bigint NOT NULL, product_id bigint NOT NULL, product_name varchar(255), quantity integer NOT NULL, "
+            + "total_price numeric(10,2), status varchar(255) NOT NULL, customer_name varchar(255), "
+            + "email varchar(255), address varchar(255), city varchar(255), zip varchar(255), "
+            + "created_at timestamp(6) NOT NULL, updated_at timestamp(6), archived_at timestamp(6) NOT NULL, "
+            + "items jsonb NOT NULL, PRIMARY KEY (id, created_at)) PARTITION BY RANGE (created_at)";
+
+    // Served by idx_orders_status_created_at_id; SKIP LOCKED lets several pods archive at once
+    private static final String CLAIM_SQL = "SELECT id, created_at FROM orders "
+            + "WHERE status IN ('DELIVERED', 'CANCELLED') AND created_at < ? LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String COPY_SQL = "INSERT INTO orders_archive (id, product_id, product_name, quantity, "
+            + "total_price, status, customer_name, email, address, city, zip, created_at, updated_at, archived_at, items) "
+            + "SELECT o.id, o.product_id, o.product_name, o.quantity, o.total_price, o.status, o.customer_name, "
+            + "o.email, o.address, o.city, o.zip, o.created_at, o.updated_at, ?, "
+            + "COALESCE((SELECT jsonb_agg(jsonb_build_object('id', i.id, 'productId', i.product_id, "
+            + "'productName', i.product_name, 'quantity', i.quantity, 'unitPrice', i.unit_price, "
+            + "'lineTotal', i.line_total) ORDER BY i.id) FROM order_items i WHERE i.order_id = o.id), '[]'::jsonb) "
+            + "FROM orders o WHERE o.id = ANY(?)";
+
+    private static final String MISSING_PARTITIONS_SQL =
+            "SELECT name FROM unnest(?::text[]) AS name WHERE to_regclass(name) IS NULL";
+
+    private static final String FIND_SQL = "SELECT id, product_id, product_name, quantity, total_price, status, "
+            + "customer_name, email, address, city, zip, created_at, updated_at, items FROM orders_archive WHERE id = ?";
+
+    private static final TypeReference<List<OrderItem>> ITEMS = new TypeReference<>() {
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PostConstruct
+    void createTable() {
+        jdbcTemplate.execute(CREATE_TABLE);
+    }
+
+    /** The archived order with its items, detached. */
+    public Optional<Order> findById(Long id) {
+        return jdbcTemplate.query(FIND_SQL, this::toOrder, id).stream().findFirst();
+    }
+
+    /**
+     * Moves up to {@code limit} DELIVERED and CANCELLED orders created before {@code cutoff},
+     * with their items, from the order tables to the archive. Returns how many were moved.
+     */
+    @Transactional
+    public int archive(LocalDateTime cutoff, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        TreeSet<YearMonth> months = new TreeSet<>();
+        jdbcTemplate.query(CLAIM_SQL, rs -> {
+            ids.add(rs.getLong(1));
+            months.add(YearMonth.from(rs.getTimestamp(2).toLocalDateTime()));
+        }, Timestamp.valueOf(cutoff), limit);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        ensurePartitions(months);
+        Long[] idArray = ids.toArray(Long[]::new);
+        jdbcTemplate.update(COPY_SQL, ps -> {
+            ps.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setArray(2, bigintArray(ps.getConnection(), idArray));
+        });
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id = ANY(?)",
+                ps -> ps.setArray(1, bigintArray(ps.getConnection(), idArray)));
+        jdbcTemplate.update("DELETE FROM orders WHERE id = ANY(?)",
+                ps -> ps.setArray(1, bigintArray(ps.getConnection(), idArray)));
+        return ids.size();
+    }
+
+    /**
+     * Creates the partitions that do not exist yet. Only then is the advisory lock taken, so
+     * chunks landing in existing partitions, nearly all of them, never queue behind each other.
+     */
+    private void ensurePartitions(TreeSet<YearMonth> months) {
+        String[] names = months.stream().map(OrderArchiveRepository::partitionName).toArray(String[]::new);
+        List<String> missing = jdbcTemplate.query(MISSING_PARTITIONS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", names)),
+                (rs, rowNum) -> rs.getString(1));
+        if (missing.isEmpty()) {
+            return;
+        }
+        // Pods creating the same partition at once would collide on its name
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + PARTITION_LOCK_KEY + ")");
+        for (YearMonth month : months) {
+            if (missing.contains(partitionName(month))) {
+                jdbcTemplate.execute(String.format(
+                        "CREATE TABLE IF NOT EXISTS %s PARTITION OF orders_archive FOR VALUES FROM ('%s') TO ('%s')",
+                        partitionName(month), month.atDay(1), month.plusMonths(1).atDay(1)));
+            }
+        }
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("orders_archive_%d_%02d", month.getYear(), month.getMonthValue());
+    }
+
+    private static Array bigintArray(Connection con, Long[] ids) throws SQLException {
+        return con.createArrayOf("bigint", ids);
+    }
+
+    private Order toOrder(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp updatedAt = rs.getTimestamp(13);
+        Order order = Order.builder()
+                .id(rs.getLong(1))
+                .productId(rs.getLong(2))
+                .productName(rs.getString(3))
+                .quantity(rs.getInt(4))
+                .totalPrice(rs.getBigDecimal(5))
+                .status(Order.OrderStatus.valueOf(rs.getString(6)))
+                .customerName(rs.getString(7))
+                .email(rs.getString(8))
+                .address(rs.getString(9))
+                .city(rs.getString(10))
+                .zip(rs.getString(11))
+                .createdAt(rs.getTimestamp(12).toLocalDateTime())
+                .updatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null)
+                .build();
+        try {
+            objectMapper.readValue(rs.getString(14), ITEMS).forEach(order::addItem);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Unreadable items of archived order " + order.getId(), e);
+        }
+        return order;
+    }
+}
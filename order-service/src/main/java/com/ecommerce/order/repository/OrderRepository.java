@@ -1,17 +1,77 @@
 package com.ecommerce.order.repository;
 
+import com.ecommerce.order.dto.OrderSummary;
 import com.ecommerce.order.model.Order;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    String EXPORT_FETCH_SIZE = "1000";
+
+    String SUMMARY = "SELECT new com.ecommerce.order.dto.OrderSummary(o.id, o.productId, o.productName, o.quantity, "
+            + "o.totalPrice, o.status, o.customerName, o.createdAt) FROM Order o ";
+
     List<Order> findByStatus(Order.OrderStatus status);
 
+    /**
+     * Keyset page, newest first: orders created in {@code [from, before)} and, within the same
+     * instant, with an id below {@code beforeId}. The row comparison is a single range scan
+     * of {@code idx_orders_created_at_id}, however deep the page.
+     */
+    @Query(SUMMARY + "WHERE (o.createdAt, o.id) < (:beforeCreatedAt, :beforeId) AND o.createdAt >= :from "
+            + "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findSummariesBefore(@Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+            @Param("beforeId") long beforeId, @Param("from") LocalDateTime from, Limit limit);
+
+    /** Same page within one status, on {@code idx_orders_status_created_at_id}. */
+    @Query(SUMMARY + "WHERE o.status = :status AND (o.createdAt, o.id) < (:beforeCreatedAt, :beforeId) "
+            + "AND o.createdAt >= :from ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findSummariesByStatusBefore(@Param("status") Order.OrderStatus status,
+            @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt, @Param("beforeId") long beforeId,
+            @Param("from") LocalDateTime from, Limit limit);
+
     List<Order> findByProductId(Long productId);
 
+    /** The order created under a scoped Idempotency-Key, with its items, read from the primary. */
+    @EntityGraph(attributePaths = "items")
+    @Transactional
+    Optional<Order> findByIdempotencyKey(String idempotencyKey);
+
     List<Order> findByCustomerName(String customerName);
+
+    /**
+     * Moves the order to {@code to} only while its status is one of {@code from}. Returns 0
+     * when another transaction changed the status first, so of two concurrent
+     * cancellations only one gives its stock back, and no status change overwrites another.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.updatedAt = :now WHERE o.id = :id AND o.status IN :from")
+    int updateStatusIfIn(@Param("id") Long id, @Param("from") Collection<Order.OrderStatus> from,
+            @Param("to") Order.OrderStatus to, @Param("now") LocalDateTime now);
+
+    /** Cursor over every order; must be consumed inside a transaction and closed. */
+    @Query("SELECT o FROM Order o ORDER BY o.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    Stream<Order> streamAllByOrderById();
 }
@@ -0,0 +1,56 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.model.StockOutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockOutboxRepository extends JpaRepository<StockOutboxEntry, Long> {
+
+    /**
+     * Puts up to {@code limit} unclaimed entries into batch {@code batchId}. SKIP LOCKED lets
+     * several pods claim at once without waiting on each other or claiming the same entry.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE stock_outbox SET batch_id = :batchId WHERE id IN ("
+            + "SELECT id FROM stock_outbox WHERE batch_id IS NULL ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED)",
+            nativeQuery = true)
+    int claim(@Param("batchId") String batchId, @Param("limit") int limit);
+
+    // Read from the primary: a lagging replica would resend batches already dispatched
+    @Transactional
+    @Query("SELECT e.batchId FROM StockOutboxEntry e WHERE e.batchId IS NOT NULL AND e.dispatchedAt IS NULL "
+            + "GROUP BY e.batchId HAVING MIN(e.nextAttemptAt) <= :now ORDER BY MIN(e.id)")
+    List<String> findDueBatches(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Transactional
+    List<StockOutboxEntry> findByBatchId(String batchId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE StockOutboxEntry e SET e.dispatchedAt = :now WHERE e.batchId = :batchId")
+    int markDispatched(@Param("batchId") String batchId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE StockOutboxEntry e SET e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt "
+            + "WHERE e.batchId = :batchId")
+    int markFailed(@Param("batchId") String batchId, @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    @Query("SELECT COUNT(e) FROM StockOutboxEntry e WHERE e.dispatchedAt IS NULL")
+    long countPending();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM StockOutboxEntry e WHERE e.dispatchedAt < :before")
+    int deleteDispatchedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,243 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.exception.IdempotencyKeyInUseException;
+import com.ecommerce.order.model.IdempotencyRecord;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.repository.IdempotencyRecordRepository;
+import com.ecommerce.order.repository.OrderRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Runs POST /orders at most once per Idempotency-Key. A bounded in-memory map of recent
+ * keys answers replays without a database round trip, and makes concurrent requests with
+ * the same key on this pod wait for the one in flight. The idempotency_keys table backs
+ * it for other pods and restarts: a request claims the key with a unique insert before
+ * creating the order, and stores the order once it is created. The order carries the
+ * scoped key, so a request that finds the key still claimed by one that died after saving
+ * its order returns that order instead of creating another.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${app.idempotency.memory.max-size:10000}")
+    private long memoryMaxSize;
+
+    @Value("${app.idempotency.memory.ttl:10m}")
+    private Duration memoryTtl;
+
+    @Value("${app.idempotency.wait-timeout:10s}")
+    private Duration waitTimeout;
+
+    @Value("${app.idempotency.in-progress-timeout:30s}")
+    private Duration inProgressTimeout;
+
+    private Cache<String, CompletableFuture<Outcome>> recent;
+
+    /** The order and whether it was replayed from an earlier request. */
+    public record Outcome(Order order, String requestHash, boolean replayed) {
+    }
+
+    @PostConstruct
+    void init() {
+        recent = Caffeine.newBuilder()
+                .maximumSize(memoryMaxSize)
+                .expireAfterWrite(memoryTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recent, "order-idempotency-keys");
+    }
+
+    /** {@code createOrder} is given the scoped key, to be saved with the order. */
+    public Outcome createOnce(String owner, String key, CreateOrderRequest request,
+            Function<String, Order> createOrder) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String scopedKey = (owner != null ? owner : "anonymous") + ":" + key;
+        String requestHash = hash(request);
+        while (true) {
+            CompletableFuture<Outcome> mine = new CompletableFuture<>();
+            CompletableFuture<Outcome> inFlight = recent.asMap().putIfAbsent(scopedKey, mine);
+            if (inFlight == null) {
+                return runOnce(scopedKey, requestHash, createOrder, mine);
+            }
+            Outcome outcome = await(inFlight);
+            if (outcome != null) {
+                return replay(outcome, requestHash);
+            }
+            // The request in flight failed and freed the key; try to claim it
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int purged = recordRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            logger.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private Outcome runOnce(String scopedKey, String requestHash, Function<String, Order> createOrder,
+            CompletableFuture<Outcome> mine) {
+        Outcome outcome;
+        try {
+            outcome = claimAndRun(scopedKey, requestHash, createOrder);
+        } catch (RuntimeException | Error e) {
+            recent.asMap().remove(scopedKey, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        mine.complete(outcome);
+        return outcome;
+    }
+
+    private Outcome claimAndRun(String scopedKey, String requestHash, Function<String, Order> createOrder) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord record;
+        Optional<IdempotencyRecord> existing = recordRepository.findByIdempotencyKey(scopedKey);
+        if (existing.isPresent()) {
+            record = existing.get();
+            if (record.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                return replay(stored(record), requestHash);
+            }
+            // The claimant saved its order but could not record it
+            Optional<Order> created = orderRepository.findByIdempotencyKey(scopedKey);
+            if (created.isPresent()) {
+                Outcome outcome = new Outcome(created.get(), record.getRequestHash(), true);
+                record(record.getId(), scopedKey, created.get());
+                return replay(outcome, requestHash);
+            }
+            if (recordRepository.takeOver(record.getId(), requestHash, now, now.plus(ttl),
+                    now.minus(inProgressTimeout)) == 0) {
+                throw inUse();
+            }
+            logger.warn("Took over idempotency key {} abandoned by an earlier request", scopedKey);
+        } else {
+            try {
+                record = recordRepository.saveAndFlush(IdempotencyRecord.builder()
+                        .idempotencyKey(scopedKey)
+                        .requestHash(requestHash)
+                        .status(IdempotencyRecord.Status.IN_PROGRESS)
+                        .createdAt(now)
+                        .expiresAt(now.plus(ttl))
+                        .build());
+            } catch (DataIntegrityViolationException e) {
+                // Another pod claimed the key between our lookup and insert
+                IdempotencyRecord winner = recordRepository.findByIdempotencyKey(scopedKey).orElseThrow(this::inUse);
+                if (winner.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                    return replay(stored(winner), requestHash);
+                }
+                throw inUse();
+            }
+        }
+
+        Order order;
+        try {
+            order = createOrder.apply(scopedKey);
+        } catch (RuntimeException | Error e) {
+            recordRepository.release(record.getId());
+            throw e;
+        }
+        record(record.getId(), scopedKey, order);
+        return new Outcome(order, requestHash, false);
+    }
+
+    private void record(Long recordId, String scopedKey, Order order) {
+        try {
+            recordRepository.complete(recordId, order.getId(), objectMapper.writeValueAsString(order),
+                    LocalDateTime.now().plus(ttl));
+        } catch (JsonProcessingException | RuntimeException e) {
+            // The order carries the key; a later request finds it there and records it
+            logger.error("Failed to record order {} for idempotency key {}: {}", order.getId(), scopedKey,
+                    e.getMessage());
+        }
+    }
+
+    private Outcome await(CompletableFuture<Outcome> inFlight) {
+        try {
+            return inFlight.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            throw inUse();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inUse();
+        }
+    }
+
+    private static Outcome replay(Outcome outcome, String requestHash) {
+        if (!outcome.requestHash().equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency-Key was already used for a different order");
+        }
+        return new Outcome(outcome.order(), requestHash, true);
+    }
+
+    private Outcome stored(IdempotencyRecord record) {
+        try {
+            return new Outcome(objectMapper.readValue(record.getResponseBody(), Order.class), record.getRequestHash(),
+                    true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable stored order for idempotency key " + record.getIdempotencyKey(),
+                    e);
+        }
+    }
+
+    private IdempotencyKeyInUseException inUse() {
+        return new IdempotencyKeyInUseException("A request with this Idempotency-Key is still being processed");
+    }
+
+    private String hash(CreateOrderRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot hash order request", e);
+        }
+    }
+}
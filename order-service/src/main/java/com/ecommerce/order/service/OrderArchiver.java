@@ -0,0 +1,87 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.repository.OrderArchiveRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Moves DELIVERED and CANCELLED orders older than {@code min-age} out of the orders table
+ * into the archive, so listings and status lookups only scan live orders. Each run moves
+ * up to {@code chunks-per-run} chunks of {@code chunk-size} orders, one transaction per
+ * chunk with a pause in between, so archiving a large backlog never holds many row locks
+ * or competes with order traffic for long.
+ */
+@Service
+public class OrderArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderArchiver.class);
+
+    @Autowired
+    private OrderArchiveRepository archiveRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.order-archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.order-archive.min-age:30d}")
+    private Duration minAge;
+
+    @Value("${app.order-archive.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.order-archive.chunks-per-run:100}")
+    private int chunksPerRun;
+
+    @Value("${app.order-archive.pause:50ms}")
+    private Duration pause;
+
+    private Counter archived;
+
+    @PostConstruct
+    void init() {
+        archived = Counter.builder("orders.archived")
+                .description("Orders moved to the archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.order-archive.interval:PT1M}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(minAge);
+        long start = System.currentTimeMillis();
+        int total = 0;
+        try {
+            for (int chunk = 0; chunk < chunksPerRun; chunk++) {
+                int moved = archiveRepository.archive(cutoff, chunkSize);
+                total += moved;
+                archived.increment(moved);
+                if (moved < chunkSize) {
+                    break;
+                }
+                Thread.sleep(pause.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.warn("Archiving orders failed after {} orders: {}", total, e.getMessage());
+        }
+        if (total > 0) {
+            logger.info("Archived {} orders created before {} in {} ms", total, cutoff,
+                    System.currentTimeMillis() - start);
+        }
+    }
+}
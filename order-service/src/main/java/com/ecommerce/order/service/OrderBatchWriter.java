@@ -0,0 +1,408 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.repository.OrderRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group commit for new orders. With {@code app.order-batching.enabled}, {@link #save}
+ * queues the order and waits; a writer thread takes whatever has queued up, up to
+ * {@code max-batch-size} orders and waiting at most {@code max-wait} after the first one,
+ * and inserts it with one multi-row INSERT per table in one transaction, so concurrent
+ * orders share a commit. Orders that arrive while a batch commits form the next one, so
+ * batches grow with load even without a wait. Ids are drawn from the tables' identity
+ * sequences with one call per batch. If a batch fails, its orders are retried one at a time
+ * so a bad order fails alone.
+ * <p>
+ * Disabled, while the queue is full, or when no writer has picked the order up within
+ * {@code save-timeout}, an order is saved through JPA in its own transaction. A writer
+ * claims each order before inserting it, and a caller only falls back after withdrawing
+ * its order the same way, so an order is never inserted twice.
+ */
+@Service
+public class OrderBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderBatchWriter.class);
+
+    // Keeps a statement well under the 32767 bind parameters Postgres accepts
+    private static final int MAX_ROWS_PER_INSERT = 1000;
+
+    private static final String ORDER_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('orders', 'id')) FROM generate_series(1, ?)";
+    private static final String ITEM_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('order_items', 'id')) FROM generate_series(1, ?)";
+    private static final String INSERT_ORDERS = "INSERT INTO orders (id, product_id, product_name, quantity, "
+            + "total_price, status, customer_name, email, address, city, zip, created_at, updated_at, "
+            + "idempotency_key) VALUES ";
+    private static final String INSERT_ITEMS = "INSERT INTO order_items (id, order_id, product_id, product_name, "
+            + "quantity, unit_price, line_total) VALUES ";
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${app.order-batching.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.order-batching.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Value("${app.order-batching.max-wait:0ms}")
+    private Duration maxWait;
+
+    @Value("${app.order-batching.writers:2}")
+    private int writers;
+
+    @Value("${app.order-batching.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.order-batching.save-timeout:5s}")
+    private Duration saveTimeout;
+
+    private BlockingQueue<PendingOrder> queue;
+    private ExecutorService writerThreads;
+    private TransactionTemplate transactionTemplate;
+    private DistributionSummary batchSizes;
+    private Timer waitTimes;
+    private volatile boolean running;
+
+    private record PendingOrder(Order order, long queuedAt, CompletableFuture<Void> saved, AtomicBoolean claimed) {
+
+        /** True for exactly one of the writer inserting the order and the caller withdrawing it. */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // Bounds the wait of callers whose order a writer has already claimed
+        transactionTemplate.setTimeout((int) Math.max(1, saveTimeout.toSeconds()));
+        batchSizes = DistributionSummary.builder("orders.batch.size")
+                .description("Orders inserted together in one group commit")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue((double) maxBatchSize)
+                .register(meterRegistry);
+        waitTimes = Timer.builder("orders.batch.wait")
+                .description("Time from queueing an order to the commit of its batch")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadNumber = new AtomicInteger();
+        writerThreads = Executors.newFixedThreadPool(writers, runnable -> {
+            Thread thread = new Thread(runnable, "order-batch-writer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < writers; i++) {
+            writerThreads.execute(this::write);
+        }
+        logger.info("Batching order inserts: up to {} orders or {} per batch, {} writers", maxBatchSize, maxWait,
+                writers);
+    }
+
+    /**
+     * Lets the writers commit what is queued, then stop. Orders still queued after that
+     * fail, so their callers give the stock back instead of waiting forever.
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        writerThreads.shutdown();
+        if (!writerThreads.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("Order batch writers did not finish within 10s");
+        }
+        List<PendingOrder> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        IllegalStateException stopped = new IllegalStateException("Order writer stopped before saving the order");
+        int failed = 0;
+        for (PendingOrder pending : leftover) {
+            if (pending.claim()) {
+                pending.saved().completeExceptionally(stopped);
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            logger.warn("Failed {} queued orders at shutdown", failed);
+        }
+    }
+
+    /**
+     * Inserts the order and its items, and returns it with ids assigned once committed.
+     * Callers must not be in a transaction: a batched order commits on its own. The order
+     * is validated here, as JPA would before persisting it, since batches bypass JPA.
+     */
+    public Order save(Order order) {
+        if (!running) {
+            return orderRepository.save(order);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+        if (order.getStatus() == null) {
+            order.setStatus(Order.OrderStatus.PENDING);
+        }
+        Set<ConstraintViolation<Order>> violations = validator.validate(order);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        PendingOrder pending = new PendingOrder(order, System.nanoTime(), new CompletableFuture<>(),
+                new AtomicBoolean());
+        if (!queue.offer(pending)) {
+            return orderRepository.save(order);
+        }
+        // Shutdown may have drained the queue between the check above and the offer
+        if (!running && withdraw(pending)) {
+            return orderRepository.save(order);
+        }
+        try {
+            pending.saved().get(saveTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (withdraw(pending)) {
+                logger.warn("Order not picked up by a batch writer within {}, saving it directly", saveTimeout);
+                return orderRepository.save(order);
+            }
+            // A writer is inserting it; its transaction timeout bounds the rest of the wait
+            awaitSaved(pending);
+        } catch (ExecutionException e) {
+            throw failure(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (withdraw(pending)) {
+                throw new IllegalStateException("Interrupted while waiting for the order to be saved", e);
+            }
+            awaitSaved(pending);
+        }
+        return order;
+    }
+
+    private boolean withdraw(PendingOrder pending) {
+        if (!pending.claim()) {
+            return false;
+        }
+        queue.remove(pending);
+        return true;
+    }
+
+    private void awaitSaved(PendingOrder pending) {
+        try {
+            pending.saved().join();
+        } catch (RuntimeException e) {
+            throw failure(e);
+        }
+    }
+
+    private static RuntimeException failure(Exception e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause instanceof RuntimeException runtime ? runtime
+                : new IllegalStateException("Order could not be saved", cause);
+    }
+
+    private void write() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            boolean interrupted = false;
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = first.queuedAt() + maxWait.toNanos();
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() == maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            // Whatever was taken off the queue has a caller waiting for it, unless it withdrew
+            batch.removeIf(pending -> !pending.claim());
+            if (!batch.isEmpty()) {
+                try {
+                    flush(batch);
+                } catch (Throwable e) {
+                    // Keep the writer alive; the batch's callers see the failure
+                    logger.error("Order batch writer failed on a batch of {} orders", batch.size(), e);
+                    batch.forEach(pending -> pending.saved().completeExceptionally(e));
+                }
+                batch.clear();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void flush(List<PendingOrder> batch) {
+        batchSizes.record(batch.size());
+        try {
+            insert(batch);
+            batch.forEach(this::saved);
+            return;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).saved().completeExceptionally(e);
+                return;
+            }
+            // The statement text in the message runs to a placeholder per column and order
+            logger.warn("Batch of {} orders failed, inserting them one at a time: {}", batch.size(),
+                    NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+        for (PendingOrder pending : batch) {
+            try {
+                insert(List.of(pending));
+                saved(pending);
+            } catch (RuntimeException e) {
+                pending.saved().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void saved(PendingOrder pending) {
+        waitTimes.record(System.nanoTime() - pending.queuedAt(), TimeUnit.NANOSECONDS);
+        pending.saved().complete(null);
+    }
+
+    /** Ids are only set on the orders and items once the transaction has committed. */
+    private void insert(List<PendingOrder> batch) {
+        List<Order> orders = batch.stream().map(PendingOrder::order).toList();
+        List<OrderItem> items = orders.stream().flatMap(order -> order.getItems().stream()).toList();
+        long[][] ids = transactionTemplate.execute(status -> {
+            long[] orderIds = nextIds(ORDER_IDS_SQL, orders.size());
+            long[] itemIds = nextIds(ITEM_IDS_SQL, items.size());
+            insertRows(INSERT_ORDERS, 14, orders.size(), (statement, row, p) -> {
+                Order order = orders.get(row);
+                statement.setLong(p, orderIds[row]);
+                statement.setObject(p + 1, order.getProductId());
+                statement.setString(p + 2, order.getProductName());
+                statement.setObject(p + 3, order.getQuantity());
+                statement.setBigDecimal(p + 4, order.getTotalPrice());
+                statement.setString(p + 5, order.getStatus().name());
+                statement.setString(p + 6, order.getCustomerName());
+                statement.setString(p + 7, order.getEmail());
+                statement.setString(p + 8, order.getAddress());
+                statement.setString(p + 9, order.getCity());
+                statement.setString(p + 10, order.getZip());
+                statement.setObject(p + 11, order.getCreatedAt());
+                statement.setObject(p + 12, order.getUpdatedAt());
+                statement.setString(p + 13, order.getIdempotencyKey());
+            });
+            long[] itemOrderIds = new long[items.size()];
+            for (int o = 0, i = 0; o < orders.size(); o++) {
+                for (int n = orders.get(o).getItems().size(); n > 0; n--) {
+                    itemOrderIds[i++] = orderIds[o];
+                }
+            }
+            insertRows(INSERT_ITEMS, 7, items.size(), (statement, row, p) -> {
+                OrderItem item = items.get(row);
+                statement.setLong(p, itemIds[row]);
+                statement.setLong(p + 1, itemOrderIds[row]);
+                statement.setObject(p + 2, item.getProductId());
+                statement.setString(p + 3, item.getProductName());
+                statement.setObject(p + 4, item.getQuantity());
+                statement.setBigDecimal(p + 5, item.getUnitPrice());
+                statement.setBigDecimal(p + 6, item.getLineTotal());
+            });
+            return new long[][]{orderIds, itemIds};
+        });
+        for (int o = 0; o < orders.size(); o++) {
+            orders.get(o).setId(ids[0][o]);
+        }
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setId(ids[1][i]);
+        }
+    }
+
+    private long[] nextIds(String sql, int count) {
+        if (count == 0) {
+            return new long[0];
+        }
+        return jdbcTemplate.queryForList(sql, Long.class, count).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private interface RowBinder {
+        void bind(PreparedStatement statement, int row, int firstParameter) throws SQLException;
+    }
+
+    private void insertRows(String insert, int columns, int rows, RowBinder binder) {
+        String placeholders = "(" + "?, ".repeat(columns - 1) + "?)";
+        for (int from = 0; from < rows; from += MAX_ROWS_PER_INSERT) {
+            int first = from;
+            int count = Math.min(MAX_ROWS_PER_INSERT, rows - from);
+            String sql = insert + String.join(", ", Collections.nCopies(count, placeholders));
+            jdbcTemplate.update(sql, statement -> {
+                for (int row = 0; row < count; row++) {
+                    binder.bind(statement, first + row, row * columns + 1);
+                }
+            });
+        }
+    }
+}
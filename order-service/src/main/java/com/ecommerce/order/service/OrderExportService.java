@@ -0,0 +1,61 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.repository.OrderRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes all orders as NDJSON straight from a database cursor. Rows arrive
+ * {@value OrderRepository#EXPORT_FETCH_SIZE} at a time and the persistence context is
+ * cleared after each window, so memory stays flat however large the table is.
+ */
+@Service
+public class OrderExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportService.class);
+    private static final int FETCH_SIZE = Integer.parseInt(OrderRepository.EXPORT_FETCH_SIZE);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /** Postgres only uses a server-side cursor inside a transaction, hence readOnly rather than none. */
+    @Transactional(readOnly = true)
+    public long export(OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        long exported = 0;
+        try (Stream<Order> orders = orderRepository.streamAllByOrderById();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Iterator<Order> rows = orders.iterator();
+            while (rows.hasNext()) {
+                generator.writeObject(rows.next());
+                generator.writeRaw('\n');
+                if (++exported % FETCH_SIZE == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+        }
+        logger.info("Exported {} orders in {} ms", exported, System.currentTimeMillis() - start);
+        return exported;
+    }
+}
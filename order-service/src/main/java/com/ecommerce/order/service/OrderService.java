@@ -1,24 +1,44 @@
 package com.ecommerce.order.service;
 
+import com.ecommerce.order.client.ProductClient;
+import com.ecommerce.order.client.ProductSnapshotCache;
 import com.ecommerce.order.dto.CreateOrderRequest;
-import com.ecommerce.order.dto.ProductDTO;
+import com.ecommerce.order.dto.OrderPage;
+import com.ecommerce.order.dto.OrderSummary;
+import com.ecommerce.order.dto.StockReservationRequest;
+import com.ecommerce.order.dto.StockReservationResult;
+import com.ecommerce.order.event.OrderChangedEvent;
 import com.ecommerce.order.exception.InsufficientStockException;
 import com.ecommerce.order.exception.OrderNotFoundException;
 import com.ecommerce.order.exception.ProductServiceException;
 import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.model.StockOutboxEntry;
+import com.ecommerce.order.repository.OrderArchiveRepository;
 import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.repository.StockOutboxRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -26,56 +46,104 @@ public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    // Open ends of the creation window; both are within PostgreSQL's timestamp range
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    /** Statuses in which the goods are still in stock, so cancelling gives the units back. */
+    private static final Set<Order.OrderStatus> RESTOCKED_ON_CANCEL = EnumSet.of(
+            Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED, Order.OrderStatus.PROCESSING);
+
+    private static final String NOT_FOUND_MESSAGE = "Product not found with id: ";
+
     @Autowired
     private OrderRepository orderRepository;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private ProductClient productClient;
 
-    @Value("${product.service.url}")
-    private String productServiceUrl;
+    @Autowired
+    private ProductSnapshotCache productSnapshotCache;
 
-    public Order createOrder(CreateOrderRequest request) {
-        logger.info("Creating order for productId: {}, quantity: {}", request.getProductId(), request.getQuantity());
+    @Autowired
+    private StockOutboxRepository outboxRepository;
 
-        // Step 1: Validate product exists and get details
-        ProductDTO product = getProductDetails(request.getProductId());
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-        // Step 2: Validate sufficient stock
-        if (product.getStockQuantity() < request.getQuantity()) {
-            throw new InsufficientStockException(
-                    String.format("Insufficient stock for product '%s'. Available: %d, Requested: %d",
-                            product.getName(), product.getStockQuantity(), request.getQuantity()));
-        }
+    @Autowired
+    private OrderBatchWriter orderBatchWriter;
+
+    @Autowired
+    private OrderArchiveRepository archiveRepository;
+
+    /**
+     * Reserves stock for every line with one product-service call, which also returns the
+     * prices, then saves the order and its items in one insert transaction, shared with
+     * concurrent orders when batching is on. Runs without a
+     * surrounding transaction so the product-service call does not hold a database
+     * connection. The reservation carries a generated id; if the order cannot be saved, or
+     * the reservation call fails without an answer, a release of that id goes through the
+     * stock outbox, so product-service gives back whatever it took. Lines for
+     * products product-service recently reported missing are rejected before the call.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Order createOrder(CreateOrderRequest request) {
+        return createOrder(request, null);
+    }
 
-        // Step 3: Calculate total price
-        BigDecimal totalPrice = product.getPrice().multiply(BigDecimal.valueOf(request.getQuantity()));
+    /** As {@link #createOrder(CreateOrderRequest)}, saving the order with the request's scoped Idempotency-Key. */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Order createOrder(CreateOrderRequest request, String idempotencyKey) {
+        List<StockReservationRequest.Line> lines = orderLines(request);
+        logger.info("Creating order with {} lines", lines.size());
+        rejectUnavailable(lines);
+
+        String reservationId = UUID.randomUUID().toString();
+        StockReservationResult reservation = reserveStock(reservationId, lines);
 
-        // Step 4: Build and save order
         Order order = Order.builder()
-                .productId(request.getProductId())
-                .productName(product.getName())
-                .quantity(request.getQuantity())
-                .totalPrice(totalPrice)
                 .customerName(request.getCustomerName())
                 .email(request.getEmail())
                 .address(request.getAddress())
                 .city(request.getCity())
                 .zip(request.getZip())
                 .status(Order.OrderStatus.CONFIRMED)
+                .idempotencyKey(idempotencyKey)
                 .build();
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        int totalQuantity = 0;
+        for (StockReservationResult.Line line : reservation.getLines()) {
+            BigDecimal lineTotal = line.getUnitPrice().multiply(BigDecimal.valueOf(line.getQuantity()));
+            order.addItem(OrderItem.builder()
+                    .productId(line.getProductId())
+                    .productName(line.getProductName())
+                    .quantity(line.getQuantity())
+                    .unitPrice(line.getUnitPrice())
+                    .lineTotal(lineTotal)
+                    .build());
+            totalPrice = totalPrice.add(lineTotal);
+            totalQuantity += line.getQuantity();
+        }
+        StockReservationResult.Line first = reservation.getLines().get(0);
+        int others = reservation.getLines().size() - 1;
+        order.setProductId(first.getProductId());
+        order.setProductName(others == 0 ? first.getProductName() : first.getProductName() + " + " + others + " more");
+        order.setQuantity(totalQuantity);
+        order.setTotalPrice(totalPrice);
 
-        Order savedOrder = orderRepository.save(order);
-        logger.info("Order created successfully with id: {}", savedOrder.getId());
-
-        // Step 5: Decrease stock in product service (best-effort)
+        Order savedOrder;
         try {
-            decreaseProductStock(request.getProductId(), request.getQuantity());
-        } catch (Exception e) {
-            logger.warn("Failed to decrease stock for product {}: {}", request.getProductId(), e.getMessage());
-            // Order is still saved - stock sync can be handled asynchronously
+            savedOrder = orderBatchWriter.save(order);
+        } catch (RuntimeException e) {
+            returnReservation(reservationId, lines);
+            throw e;
         }
-
+        logger.info("Order created successfully with id: {}", savedOrder.getId());
+        eventPublisher.publishEvent(OrderChangedEvent.created(savedOrder));
         return savedOrder;
     }
 
@@ -84,9 +152,43 @@ public class OrderService {
         return orderRepository.findAll();
     }
 
+    /**
+     * Keyset page of order summaries, newest first, optionally within one status and a
+     * {@code [from, to)} creation window. The cursor is the (createdAt, id) of the last order
+     * on the previous page, so every page costs the same however deep it is.
+     */
+    @Transactional(readOnly = true)
+    public OrderPage getOrderPage(Order.OrderStatus status, LocalDateTime from, LocalDateTime to, String cursor,
+            int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        LocalDateTime lowerBound = from != null ? from : EARLIEST;
+        LocalDateTime beforeCreatedAt = to != null ? to : LATEST;
+        // (to, 0) excludes every order created at or after to
+        long beforeId = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] position = decodeCursor(cursor);
+            beforeCreatedAt = LocalDateTime.parse(position[0]);
+            beforeId = Long.parseLong(position[1]);
+        }
+        Limit limit = Limit.of(size + 1);
+        List<OrderSummary> rows = status != null
+                ? orderRepository.findSummariesByStatusBefore(status, beforeCreatedAt, beforeId, lowerBound, limit)
+                : orderRepository.findSummariesBefore(beforeCreatedAt, beforeId, lowerBound, limit);
+        if (rows.size() <= size) {
+            return new OrderPage(rows, null);
+        }
+        List<OrderSummary> items = rows.subList(0, size);
+        OrderSummary last = items.get(size - 1);
+        return new OrderPage(new ArrayList<>(items), encodeCursor(last.getCreatedAt(), last.getId()));
+    }
+
+    /** Falls back to the archive for orders that have been moved there. */
     @Transactional(readOnly = true)
     public Order getOrderById(Long id) {
         return orderRepository.findById(id)
+                .or(() -> archiveRepository.findById(id))
                 .orElseThrow(() -> new OrderNotFoundException("Order not found with id: " + id));
     }
 
@@ -95,32 +197,171 @@ public class OrderService {
         return orderRepository.findByStatus(status);
     }
 
+    /**
+     * Cancelling an order that has not shipped writes its units to the stock outbox in the
+     * same transaction, so the stock is given back even if product-service is down. The
+     * change is announced to the order statistics once it commits. Archived orders cannot
+     * be changed. Every change is a conditional UPDATE on the status just read; when another
+     * request changed it first, the order is read again and the change decided afresh, so
+     * neither update is lost and a cancelled order is never reopened.
+     */
     public Order updateOrderStatus(Long id, Order.OrderStatus newStatus) {
-        Order order = getOrderById(id);
-        order.setStatus(newStatus);
-        logger.info("Updated order {} status to {}", id, newStatus);
-        return orderRepository.save(order);
+        while (true) {
+            Order order = getLiveOrder(id);
+            Order.OrderStatus previousStatus = order.getStatus();
+            if (previousStatus == Order.OrderStatus.CANCELLED && newStatus != Order.OrderStatus.CANCELLED) {
+                throw new IllegalArgumentException("Order " + id + " is cancelled and cannot be reopened");
+            }
+            if (previousStatus == newStatus) {
+                return order;
+            }
+            boolean restock = newStatus == Order.OrderStatus.CANCELLED && RESTOCKED_ON_CANCEL.contains(previousStatus);
+            List<StockOutboxEntry> returned = restock ? stockToReturn(order) : List.of();
+            if (orderRepository.updateStatusIfIn(id, EnumSet.of(previousStatus), newStatus,
+                    LocalDateTime.now()) == 1) {
+                if (restock) {
+                    outboxRepository.saveAll(returned);
+                    logger.info("Cancelled order {}, returning stock of {} products", id, returned.size());
+                } else {
+                    logger.info("Updated order {} status to {}", id, newStatus);
+                }
+                Order updated = getLiveOrder(id);
+                eventPublisher.publishEvent(OrderChangedEvent.statusChanged(updated, previousStatus));
+                return updated;
+            }
+            logger.debug("Status of order {} changed concurrently, deciding again", id);
+        }
+    }
+
+    private Order getLiveOrder(Long id) {
+        return orderRepository.findById(id).orElseThrow(() -> archiveRepository.findById(id).isPresent()
+                ? new IllegalArgumentException("Order " + id + " is archived and cannot be changed")
+                : new OrderNotFoundException("Order not found with id: " + id));
     }
 
-    private ProductDTO getProductDetails(Long productId) {
+    private static List<StockReservationRequest.Line> orderLines(CreateOrderRequest request) {
+        if (request.getItems() != null && !request.getItems().isEmpty()) {
+            return request.getItems().stream()
+                    .map(item -> new StockReservationRequest.Line(item.getProductId(), item.getQuantity()))
+                    .toList();
+        }
+        if (request.getProductId() == null || request.getQuantity() == null) {
+            throw new IllegalArgumentException("Either items or productId and quantity are required");
+        }
+        return List.of(new StockReservationRequest.Line(request.getProductId(), request.getQuantity()));
+    }
+
+    /** Product-service decides every other case, stock included. */
+    private void rejectUnavailable(List<StockReservationRequest.Line> lines) {
+        for (StockReservationRequest.Line line : lines) {
+            if (productSnapshotCache.isMissing(line.getProductId())) {
+                throw new ProductServiceException(NOT_FOUND_MESSAGE + line.getProductId());
+            }
+        }
+    }
+
+    private StockReservationResult reserveStock(String reservationId, List<StockReservationRequest.Line> lines) {
         try {
-            String url = productServiceUrl + "/products/" + productId;
-            ProductDTO product = restTemplate.getForObject(url, ProductDTO.class);
-            if (product == null) {
-                throw new ProductServiceException("Product not found with id: " + productId);
+            StockReservationResult reservation = productClient.reserveStock(reservationId, lines);
+            if (reservation == null || reservation.getLines() == null || reservation.getLines().isEmpty()) {
+                throw new ProductServiceException("Product service returned an empty reservation");
             }
-            return product;
+            return reservation;
+        } catch (HttpClientErrorException.Conflict e) {
+            StockReservationResult result = e.getResponseBodyAs(StockReservationResult.class);
+            throw new InsufficientStockException(describeShortLines(result));
         } catch (HttpClientErrorException.NotFound e) {
-            throw new ProductServiceException("Product not found with id: " + productId);
+            Map<?, ?> body = e.getResponseBodyAs(Map.class);
+            String message = body != null && body.get("message") != null
+                    ? String.valueOf(body.get("message")) : "Product not found";
+            // The message names the first missing product, as product-service words it
+            lines.stream()
+                    .filter(line -> message.equals(NOT_FOUND_MESSAGE + line.getProductId()))
+                    .forEach(line -> productSnapshotCache.markMissing(line.getProductId()));
+            throw new ProductServiceException(message);
+        } catch (HttpClientErrorException.BadRequest e) {
+            throw new IllegalArgumentException("Invalid order lines");
+        } catch (ProductServiceException e) {
+            throw e;
         } catch (Exception e) {
+            // Timed out or failed after sending: the stock may have been taken
             logger.error("Failed to call product service: {}", e.getMessage());
+            returnReservation(reservationId, lines);
             throw new ProductServiceException("Unable to reach product service. Please try again.");
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void decreaseProductStock(Long productId, int quantity) {
-        String url = productServiceUrl + "/products/" + productId + "/stock?quantity=" + quantity;
-        restTemplate.patchForObject(url, null, Map.class);
+    /**
+     * The order was not saved, so there is no order transaction to write the outbox in; the
+     * entries get their own. Only if that fails too is product-service called directly.
+     * Keyed by the reservation id, so nothing is given back for a reservation that was
+     * never made.
+     */
+    private void returnReservation(String reservationId, List<StockReservationRequest.Line> lines) {
+        try {
+            outboxRepository.saveAll(lines.stream()
+                    .map(line -> StockOutboxEntry.builder()
+                            .reservationId(reservationId)
+                            .productId(line.getProductId())
+                            .quantity(line.getQuantity())
+                            .build())
+                    .toList());
+        } catch (RuntimeException e) {
+            logger.error("Failed to queue return of reserved stock {}, releasing directly: {}", lines, e.getMessage());
+            try {
+                productClient.releaseReservation(reservationId, lines);
+            } catch (Exception releaseFailure) {
+                logger.error("Failed to release reserved stock {}: {}", lines, releaseFailure.getMessage());
+            }
+        }
+    }
+
+    /** Orders that predate order items return their summary product and quantity. */
+    private static List<StockOutboxEntry> stockToReturn(Order order) {
+        if (order.getItems().isEmpty()) {
+            return List.of(StockOutboxEntry.builder()
+                    .orderId(order.getId())
+                    .productId(order.getProductId())
+                    .quantity(order.getQuantity())
+                    .build());
+        }
+        return order.getItems().stream()
+                .map(item -> StockOutboxEntry.builder()
+                        .orderId(order.getId())
+                        .productId(item.getProductId())
+                        .quantity(item.getQuantity())
+                        .build())
+                .toList();
+    }
+
+    private static String encodeCursor(LocalDateTime createdAt, Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            LocalDateTime.parse(position[0]);
+            Long.parseLong(position[1]);
+            return position;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static String describeShortLines(StockReservationResult result) {
+        if (result == null || result.getLines() == null) {
+            return "Insufficient stock";
+        }
+        String shortLines = result.getLines().stream()
+                .filter(line -> line.getAvailableStock() < line.getQuantity())
+                .map(line -> String.format("Insufficient stock for product '%s'. Available: %d, Requested: %d",
+                        line.getProductName(), line.getAvailableStock(), line.getQuantity()))
+                .collect(Collectors.joining("; "));
+        return shortLines.isEmpty() ? "Insufficient stock" : shortLines;
     }
 }
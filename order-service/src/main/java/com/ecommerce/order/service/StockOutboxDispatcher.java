@@ -0,0 +1,157 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.client.ProductClient;
+import com.ecommerce.order.dto.StockReservationRequest;
+import com.ecommerce.order.model.StockOutboxEntry;
+import com.ecommerce.order.repository.StockOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the stock written to the outbox back to product-service. Each run claims pending
+ * entries into batches, sums each batch per product and sends it as one release whose
+ * idempotency key is the batch id. A failed batch keeps its id and entries and is retried
+ * with exponential backoff, so a release whose response was lost is not applied twice.
+ * Entries of a reservation with an unknown outcome are sent as a release of that
+ * reservation id instead, which product-service applies at most once by itself.
+ */
+@Service
+public class StockOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockOutboxDispatcher.class);
+
+    @Autowired
+    private StockOutboxRepository outboxRepository;
+
+    @Autowired
+    private ProductClient productClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.stock-outbox.dispatcher.enabled:true}")
+    private boolean enabled;
+
+    @Value("${product.stock-outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${product.stock-outbox.batches-per-run:10}")
+    private int batchesPerRun;
+
+    @Value("${product.stock-outbox.initial-backoff:1s}")
+    private Duration initialBackoff;
+
+    @Value("${product.stock-outbox.max-backoff:5m}")
+    private Duration maxBackoff;
+
+    @Value("${product.stock-outbox.retention:3d}")
+    private Duration retention;
+
+    private final AtomicLong pending = new AtomicLong();
+    private Counter dispatched;
+    private Counter failures;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("stock.outbox.pending", pending, AtomicLong::get)
+                .description("Outbox entries not yet accepted by product-service")
+                .register(meterRegistry);
+        dispatched = Counter.builder("stock.outbox.dispatched")
+                .description("Outbox entries accepted by product-service")
+                .register(meterRegistry);
+        failures = Counter.builder("stock.outbox.failures")
+                .description("Release batches that failed and will be retried")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${product.stock-outbox.interval:PT1S}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < batchesPerRun; i++) {
+            if (outboxRepository.claim(UUID.randomUUID().toString(), batchSize) == 0) {
+                break;
+            }
+        }
+        List<String> due = outboxRepository.findDueBatches(LocalDateTime.now(), PageRequest.of(0, batchesPerRun));
+        for (String batchId : due) {
+            // Leave the rest for the next run rather than piling onto a failing product-service
+            if (!send(batchId)) {
+                break;
+            }
+        }
+        pending.set(outboxRepository.countPending());
+    }
+
+    @Scheduled(fixedDelayString = "${product.stock-outbox.purge-interval:PT1H}")
+    public void purge() {
+        int purged = outboxRepository.deleteDispatchedBefore(LocalDateTime.now().minus(retention));
+        if (purged > 0) {
+            logger.info("Purged {} dispatched outbox entries", purged);
+        }
+    }
+
+    private boolean send(String batchId) {
+        List<StockOutboxEntry> entries = outboxRepository.findByBatchId(batchId);
+        if (entries.isEmpty()) {
+            return true;
+        }
+        Map<Long, Integer> units = new LinkedHashMap<>();
+        Map<String, Map<Long, Integer>> reservations = new LinkedHashMap<>();
+        entries.forEach(entry -> (entry.getReservationId() != null
+                ? reservations.computeIfAbsent(entry.getReservationId(), id -> new LinkedHashMap<>())
+                : units).merge(entry.getProductId(), entry.getQuantity(), Integer::sum));
+        List<StockReservationRequest.Line> lines = lines(units);
+        try {
+            // Every release is idempotent, so a retried batch repeats the ones that went through
+            for (Map.Entry<String, Map<Long, Integer>> reservation : reservations.entrySet()) {
+                productClient.releaseReservation(reservation.getKey(), lines(reservation.getValue()));
+            }
+            if (!lines.isEmpty()) {
+                productClient.releaseStock(batchId, lines);
+            }
+            outboxRepository.markDispatched(batchId, LocalDateTime.now());
+            dispatched.increment(entries.size());
+            logger.info("Released batch {}: {} entries, {} products, {} reservations", batchId, entries.size(),
+                    lines.size(), reservations.size());
+            return true;
+        } catch (Exception e) {
+            int attempts = entries.stream().mapToInt(StockOutboxEntry::getAttempts).max().orElse(0);
+            Duration backoff = backoff(attempts);
+            outboxRepository.markFailed(batchId, LocalDateTime.now().plus(backoff));
+            failures.increment();
+            logger.warn("Release batch {} failed (attempt {}), retrying in {}: {}", batchId, attempts + 1, backoff,
+                    e.getMessage());
+            return false;
+        }
+    }
+
+    private static List<StockReservationRequest.Line> lines(Map<Long, Integer> units) {
+        return units.entrySet().stream()
+                .map(line -> new StockReservationRequest.Line(line.getKey(), line.getValue()))
+                .toList();
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+}
@@ -0,0 +1,131 @@
+package com.ecommerce.order.stats;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Orders, units and cents per non-negative long key. Keys are hashed into an
+ * open-addressing index of dense slots, and the counters live in parallel primitive
+ * arrays, so an entry costs about 40 bytes instead of a boxed map entry and three boxed
+ * longs. A slot stays put until {@link #retain} compacts the table.
+ * Not thread-safe; guarded by the statistics lock.
+ */
+final class CounterTable {
+
+    private static final int NO_SLOT = -1;
+
+    private int[] index;
+    private long[] keys;
+    private long[] orders;
+    private long[] units;
+    private long[] cents;
+    private int size;
+
+    CounterTable(int expectedSize) {
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, expectedSize) - 1) << 1);
+        index = new int[capacity * 2];
+        Arrays.fill(index, NO_SLOT);
+        keys = new long[capacity];
+        orders = new long[capacity];
+        units = new long[capacity];
+        cents = new long[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    long ordersAt(int slot) {
+        return orders[slot];
+    }
+
+    long unitsAt(int slot) {
+        return units[slot];
+    }
+
+    long centsAt(int slot) {
+        return cents[slot];
+    }
+
+    /** Slot of {@code key}, or -1 if it has none. */
+    int find(long key) {
+        int mask = index.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int slot = index[i];
+            if (slot == NO_SLOT || keys[slot] == key) {
+                return slot;
+            }
+        }
+    }
+
+    /** Slot of {@code key}, created with zero counters if it has none. */
+    int slot(long key) {
+        int mask = index.length - 1;
+        int i = mix(key) & mask;
+        for (; index[i] != NO_SLOT; i = (i + 1) & mask) {
+            if (keys[index[i]] == key) {
+                return index[i];
+            }
+        }
+        if (size == keys.length) {
+            grow();
+            return slot(key);
+        }
+        keys[size] = key;
+        index[i] = size;
+        return size++;
+    }
+
+    void add(int slot, long orderDelta, long unitDelta, long centDelta) {
+        orders[slot] += orderDelta;
+        units[slot] += unitDelta;
+        cents[slot] += centDelta;
+    }
+
+    /** Drops every entry whose key fails {@code keep}; surviving entries move to new slots. */
+    void retain(LongPredicate keep) {
+        int kept = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (keep.test(keys[slot])) {
+                keys[kept] = keys[slot];
+                orders[kept] = orders[slot];
+                units[kept] = units[slot];
+                cents[kept] = cents[slot];
+                kept++;
+            }
+        }
+        size = kept;
+        reindex();
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        orders = Arrays.copyOf(orders, capacity);
+        units = Arrays.copyOf(units, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        index = new int[capacity * 2];
+        reindex();
+    }
+
+    private void reindex() {
+        Arrays.fill(index, NO_SLOT);
+        int mask = index.length - 1;
+        for (int slot = 0; slot < size; slot++) {
+            int i = mix(keys[slot]) & mask;
+            while (index[i] != NO_SLOT) {
+                i = (i + 1) & mask;
+            }
+            index[i] = slot;
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,194 @@
+package com.ecommerce.order.stats;
+
+import com.ecommerce.order.dto.OrderStats;
+import com.ecommerce.order.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Order counts per status, and orders, units and revenue per product: in total, per
+ * minute for the last {@code minuteBuckets} minutes and per hour for the last
+ * {@code hourBuckets} hours, bucketed by when the order was placed. Cancelled orders
+ * count in their status but not in sales. Bucket keys pack the product's slot above the
+ * epoch minute or hour; slot 0 holds the totals over all products.
+ * Not thread-safe; guarded by the statistics lock.
+ */
+final class OrderRollups {
+
+    private static final long ALL_PRODUCTS = 0;
+    // Packs into a negative bucket key, which no bucket has
+    private static final int NO_SLOT = -1;
+    private static final Order.OrderStatus[] STATUSES = Order.OrderStatus.values();
+
+    private final int minuteBuckets;
+    private final int hourBuckets;
+    private final long[] statusCounts = new long[STATUSES.length];
+    private final CounterTable products = new CounterTable(1024);
+    private final CounterTable perMinute;
+    private final CounterTable perHour;
+    private String[] productNames = new String[1024];
+    private long currentMinute;
+
+    OrderRollups(int minuteBuckets, int hourBuckets, long currentMinute) {
+        this.minuteBuckets = minuteBuckets;
+        this.hourBuckets = hourBuckets;
+        this.currentMinute = currentMinute;
+        perMinute = new CounterTable(1024);
+        perHour = new CounterTable(1024);
+        products.slot(ALL_PRODUCTS);
+    }
+
+    static long minuteOf(LocalDateTime time) {
+        // Only differences and round trips matter, so any fixed offset will do
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /** Moves the bucket windows forward; buckets that fall out are dropped by {@link #prune}. */
+    void advanceTo(long minute) {
+        currentMinute = Math.max(currentMinute, minute);
+    }
+
+    void countStatus(Order.OrderStatus status, long delta) {
+        statusCounts[status.ordinal()] += delta;
+    }
+
+    /** Adds ({@code sign} 1) or takes back (-1) one order in the all-products totals. */
+    void addOrder(long minute, int sign) {
+        addEverywhere(0, minute, sign, 0, 0);
+    }
+
+    /** Adds ({@code sign} 1) or takes back (-1) one line of an order placed in {@code minute}. */
+    void addLine(long minute, long productId, String productName, long quantity, long cents, int sign) {
+        int slot = products.slot(productId);
+        if (slot >= productNames.length) {
+            productNames = Arrays.copyOf(productNames, productNames.length * 2);
+        }
+        if (productName != null) {
+            productNames[slot] = productName;
+        }
+        addEverywhere(slot, minute, sign, sign * quantity, sign * cents);
+        addEverywhere(0, minute, 0, sign * quantity, sign * cents);
+    }
+
+    void prune() {
+        long oldestMinute = currentMinute - minuteBuckets;
+        long oldestHour = Math.floorDiv(currentMinute, 60) - hourBuckets;
+        perMinute.retain(key -> bucketOf(key) > oldestMinute);
+        perHour.retain(key -> bucketOf(key) > oldestHour);
+    }
+
+    int bucketCount() {
+        return perMinute.size() + perHour.size();
+    }
+
+    long statusCount(Order.OrderStatus status) {
+        return statusCounts[status.ordinal()];
+    }
+
+    long orders() {
+        long orders = 0;
+        for (long count : statusCounts) {
+            orders += count;
+        }
+        return orders;
+    }
+
+    /** Totals over all products, with per-minute and per-hour series. */
+    OrderStats.ProductSales allProducts(int minutes, int hours) {
+        return sales(0, minutes, hours);
+    }
+
+    /** Zeros for a product that has never been ordered. */
+    OrderStats.ProductSales product(long productId, int minutes, int hours) {
+        int slot = products.find(productId);
+        if (slot > 0) {
+            return sales(slot, minutes, hours);
+        }
+        return new OrderStats.ProductSales(productId, null, 0, 0, BigDecimal.ZERO.setScale(2),
+                minutes > 0 ? series(perMinute, NO_SLOT, currentMinute, minutes, 1) : null,
+                hours > 0 ? series(perHour, NO_SLOT, Math.floorDiv(currentMinute, 60), hours, 60) : null);
+    }
+
+    /** Products with the most units sold, most revenue first among equals. */
+    List<OrderStats.ProductSales> topSellers(int limit) {
+        int[] top = new int[limit];
+        int found = 0;
+        for (int slot = 1; slot < products.size(); slot++) {
+            if (products.unitsAt(slot) <= 0) {
+                continue;
+            }
+            int at = found;
+            while (at > 0 && sellsMore(slot, top[at - 1])) {
+                at--;
+            }
+            if (at < limit) {
+                System.arraycopy(top, at, top, at + 1, Math.min(found, limit - 1) - at);
+                top[at] = slot;
+                found = Math.min(found + 1, limit);
+            }
+        }
+        List<OrderStats.ProductSales> sellers = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            sellers.add(sales(top[i], 0, 0));
+        }
+        return sellers;
+    }
+
+    private boolean sellsMore(int slot, int other) {
+        long units = products.unitsAt(slot);
+        long otherUnits = products.unitsAt(other);
+        return units > otherUnits || (units == otherUnits && products.centsAt(slot) > products.centsAt(other));
+    }
+
+    private OrderStats.ProductSales sales(int slot, int minutes, int hours) {
+        long productId = products.keyAt(slot);
+        return new OrderStats.ProductSales(
+                slot == 0 ? null : productId,
+                productNames[slot],
+                products.ordersAt(slot),
+                products.unitsAt(slot),
+                BigDecimal.valueOf(products.centsAt(slot), 2),
+                minutes > 0 ? series(perMinute, slot, currentMinute, minutes, 1) : null,
+                hours > 0 ? series(perHour, slot, Math.floorDiv(currentMinute, 60), hours, 60) : null);
+    }
+
+    /** The last {@code count} buckets up to {@code last}, oldest first, including empty ones. */
+    private static List<OrderStats.Bucket> series(CounterTable table, int slot, long last, int count,
+            int minutesPerBucket) {
+        List<OrderStats.Bucket> buckets = new ArrayList<>(count);
+        for (long bucket = last - count + 1; bucket <= last; bucket++) {
+            LocalDateTime start = LocalDateTime.ofEpochSecond(bucket * minutesPerBucket * 60, 0, ZoneOffset.UTC);
+            int at = table.find(bucketKey(slot, bucket));
+            buckets.add(at < 0
+                    ? new OrderStats.Bucket(start, 0, 0, BigDecimal.ZERO.setScale(2))
+                    : new OrderStats.Bucket(start, table.ordersAt(at), table.unitsAt(at),
+                            BigDecimal.valueOf(table.centsAt(at), 2)));
+        }
+        return buckets;
+    }
+
+    private void addEverywhere(int slot, long minute, long orders, long units, long cents) {
+        products.add(slot, orders, units, cents);
+        // No upper bound: an order from a peer whose clock runs ahead waits in its bucket for the window
+        if (minute > currentMinute - minuteBuckets) {
+            perMinute.add(perMinute.slot(bucketKey(slot, minute)), orders, units, cents);
+        }
+        long hour = Math.floorDiv(minute, 60);
+        if (hour > Math.floorDiv(currentMinute, 60) - hourBuckets) {
+            perHour.add(perHour.slot(bucketKey(slot, hour)), orders, units, cents);
+        }
+    }
+
+    private static long bucketKey(int slot, long bucket) {
+        return ((long) slot << 32) | (bucket & 0xFFFFFFFFL);
+    }
+
+    private static long bucketOf(long key) {
+        return key & 0xFFFFFFFFL;
+    }
+}
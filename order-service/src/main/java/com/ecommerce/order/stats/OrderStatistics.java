@@ -0,0 +1,301 @@
+package com.ecommerce.order.stats;
+
+import com.ecommerce.order.dto.OrderStats;
+import com.ecommerce.order.event.OrderChangedEvent;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory order rollups behind GET /orders/stats. Built by one streaming pass over the
+ * live and archived orders in the background after startup, and again every
+ * {@code rebuild-interval}; kept current in between from {@link OrderChangedEvent}s (local commits and changes
+ * replayed from other pods). Changes that arrive while a rebuild scans are applied to the
+ * new rollups as well before they replace the old ones. One committed in the moment
+ * between the two starting can be counted twice until the next rebuild.
+ */
+@Component
+public class OrderStatistics implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatistics.class);
+
+    public static final int MAX_TOP_SELLERS = 100;
+
+    private static final int FETCH_SIZE = Integer.parseInt(OrderRepository.EXPORT_FETCH_SIZE);
+
+    // Live orders walk the orders and order_items id indexes together, and archived orders
+    // unnest their inlined items, so the rows of an order are adjacent. One statement, so an
+    // order moved to the archive meanwhile is seen exactly once.
+    private static final String SCAN_SQL = "(SELECT o.id, o.status, o.created_at, o.product_id, o.product_name, "
+            + "o.quantity, o.total_price, i.product_id, i.product_name, i.quantity, i.line_total "
+            + "FROM orders o LEFT JOIN order_items i ON i.order_id = o.id ORDER BY o.id) "
+            + "UNION ALL "
+            + "SELECT a.id, a.status, a.created_at, a.product_id, a.product_name, a.quantity, a.total_price, "
+            + "(item ->> 'productId')::bigint, item ->> 'productName', (item ->> 'quantity')::integer, "
+            + "(item ->> 'lineTotal')::numeric "
+            + "FROM orders_archive a LEFT JOIN LATERAL jsonb_array_elements(a.items) item ON true";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.order-stats.minute-buckets:120}")
+    private int minuteBuckets;
+
+    @Value("${app.order-stats.hour-buckets:168}")
+    private int hourBuckets;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-stats-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by lock; changesDuringRebuild is non-null while a rebuild scans
+    private OrderRollups rollups;
+    private List<OrderChangedEvent> changesDuringRebuild;
+    private LocalDateTime rebuiltAt;
+
+    @PostConstruct
+    void init() {
+        rollups = new OrderRollups(minuteBuckets, hourBuckets, currentMinute());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        rebuilder.execute(this::rebuild);
+    }
+
+    @Scheduled(fixedDelayString = "${app.order-stats.rebuild-interval:PT6H}",
+            initialDelayString = "${app.order-stats.rebuild-interval:PT6H}")
+    public void scheduleRebuild() {
+        rebuilder.execute(this::rebuild);
+    }
+
+    /** Drops buckets that have fallen out of the per-minute and per-hour windows. */
+    @Scheduled(fixedRate = 60_000)
+    public void prune() {
+        lock.writeLock().lock();
+        try {
+            rollups.advanceTo(currentMinute());
+            rollups.prune();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        long now = currentMinute();
+        lock.writeLock().lock();
+        try {
+            apply(rollups, event, now);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Status counts, sales over the last {@code minutes} minutes and {@code hours} hours, and the top sellers. */
+    public OrderStats stats(int top, int minutes, int hours) {
+        if (top < 0 || top > MAX_TOP_SELLERS) {
+            throw new IllegalArgumentException("top must be between 0 and " + MAX_TOP_SELLERS);
+        }
+        checkWindow(minutes, hours);
+        lock.readLock().lock();
+        try {
+            Map<Order.OrderStatus, Long> byStatus = new EnumMap<>(Order.OrderStatus.class);
+            for (Order.OrderStatus status : Order.OrderStatus.values()) {
+                byStatus.put(status, rollups.statusCount(status));
+            }
+            return new OrderStats(rebuiltAt != null, rebuiltAt, rollups.orders(), byStatus,
+                    rollups.allProducts(minutes, hours), top > 0 ? rollups.topSellers(top) : List.of());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public OrderStats.ProductSales productStats(long productId, int minutes, int hours) {
+        checkWindow(minutes, hours);
+        lock.readLock().lock();
+        try {
+            return rollups.product(productId, minutes, hours);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        OrderRollups rebuilt = new OrderRollups(minuteBuckets, hourBuckets, currentMinute());
+        long scanned;
+        try {
+            scanned = scan(rebuilt);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.warn("Failed to rebuild order statistics: {}", e.getMessage());
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long now = currentMinute();
+            changesDuringRebuild.forEach(change -> apply(rebuilt, change, now));
+            rebuilt.prune();
+            rollups = rebuilt;
+            rebuiltAt = LocalDateTime.now();
+            changesDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Order statistics rebuilt from {} orders in {} ms ({} buckets)", scanned,
+                System.currentTimeMillis() - start, rebuilt.bucketCount());
+    }
+
+    /** Runs on the primary: the replica may not have the changes recorded meanwhile yet. */
+    private long scan(OrderRollups target) {
+        OrderScan scan = new OrderScan(target);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                // Postgres only streams with a fetch size inside a transaction
+                jdbcTemplate.query(con -> {
+                    PreparedStatement statement = con.prepareStatement(SCAN_SQL);
+                    statement.setFetchSize(FETCH_SIZE);
+                    return statement;
+                }, scan));
+        return scan.orders;
+    }
+
+    private static void apply(OrderRollups target, OrderChangedEvent change, long now) {
+        target.advanceTo(now);
+        long minute = change.createdAt() != null ? OrderRollups.minuteOf(change.createdAt()) : 0;
+        switch (change.type()) {
+            case CREATED -> {
+                target.countStatus(change.status(), 1);
+                if (change.status() != Order.OrderStatus.CANCELLED) {
+                    addSales(target, change, minute, 1);
+                }
+            }
+            case STATUS_CHANGED -> {
+                target.countStatus(change.previousStatus(), -1);
+                target.countStatus(change.status(), 1);
+                boolean wasSold = change.previousStatus() != Order.OrderStatus.CANCELLED;
+                boolean sold = change.status() != Order.OrderStatus.CANCELLED;
+                if (wasSold != sold) {
+                    addSales(target, change, minute, sold ? 1 : -1);
+                }
+            }
+        }
+    }
+
+    private static void addSales(OrderRollups target, OrderChangedEvent change, long minute, int sign) {
+        target.addOrder(minute, sign);
+        for (OrderChangedEvent.Line line : change.lines()) {
+            target.addLine(minute, line.productId(), line.productName(), line.quantity(), cents(line.amount()), sign);
+        }
+    }
+
+    private void checkWindow(int minutes, int hours) {
+        if (minutes < 0 || minutes > minuteBuckets) {
+            throw new IllegalArgumentException("minutes must be between 0 and " + minuteBuckets);
+        }
+        if (hours < 0 || hours > hourBuckets) {
+            throw new IllegalArgumentException("hours must be between 0 and " + hourBuckets);
+        }
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact() : 0;
+    }
+
+    private static long currentMinute() {
+        return OrderRollups.minuteOf(LocalDateTime.now());
+    }
+
+    /** Feeds scanned rows into rollups; one row per order item, or per order without items. */
+    private static final class OrderScan implements RowCallbackHandler {
+
+        private final OrderRollups target;
+        private long orderId = -1;
+        private long orders;
+
+        OrderScan(OrderRollups target) {
+            this.target = target;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong(1);
+            Order.OrderStatus status = Order.OrderStatus.valueOf(rs.getString(2));
+            Timestamp createdAt = rs.getTimestamp(3);
+            long minute = createdAt != null ? OrderRollups.minuteOf(createdAt.toLocalDateTime()) : 0;
+            boolean sold = status != Order.OrderStatus.CANCELLED;
+            if (id != orderId) {
+                orderId = id;
+                orders++;
+                target.countStatus(status, 1);
+                if (sold) {
+                    target.addOrder(minute, 1);
+                }
+            }
+            if (!sold) {
+                return;
+            }
+            long itemProductId = rs.getLong(8);
+            if (rs.wasNull()) {
+                // Orders that predate order items are one line of their summary product and quantity
+                target.addLine(minute, rs.getLong(4), rs.getString(5), rs.getInt(6), cents(rs.getBigDecimal(7)), 1);
+            } else {
+                target.addLine(minute, itemProductId, rs.getString(9), rs.getInt(10), cents(rs.getBigDecimal(11)), 1);
+            }
+        }
+    }
+}
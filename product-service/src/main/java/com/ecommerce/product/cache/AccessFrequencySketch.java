@@ -0,0 +1,131 @@
+package com.ecommerce.product.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.zset.Aggregate;
+import org.springframework.data.redis.connection.zset.Weights;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks which product ids are requested most, so new pods know what to pre-warm.
+ *
+ * <p>Counts go into a count-min sketch (fixed memory, never undercounts) and the ids whose
+ * estimate is high enough are kept as top-N candidates. Every interval the candidates are
+ * merged into the shared Redis sorted set {@value #HOT_IDS_KEY}: scores already there are
+ * halved first, so popularity decays across all pods, and this pod's counts start over.
+ */
+@Component
+public class AccessFrequencySketch {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessFrequencySketch.class);
+
+    public static final String HOT_IDS_KEY = "products:hot-ids";
+
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 1 << 14;
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L,
+            0xD6E8FEB86659FD93L};
+    // The shared set keeps this many times top-N, so ids climbing the ranking are not trimmed too early
+    private static final int RETAINED_FACTOR = 4;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${product.cache.warmup.top-n:500}")
+    private int topN;
+
+    private volatile AtomicIntegerArray counts = new AtomicIntegerArray(DEPTH * WIDTH);
+    private volatile Map<Long, Integer> candidates = new ConcurrentHashMap<>();
+    private final ReentrantLock pruneLock = new ReentrantLock();
+
+    public void record(long productId) {
+        AtomicIntegerArray table = counts;
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, table.incrementAndGet(row * WIDTH + slot(productId, row)));
+        }
+        Map<Long, Integer> current = candidates;
+        current.put(productId, estimate);
+        if (current.size() > topN * 2) {
+            prune(current);
+        }
+    }
+
+    /** Most requested ids across all pods, most popular first. */
+    public List<Long> hotIds() {
+        Set<String> ids = redisTemplate.opsForZSet().reverseRange(HOT_IDS_KEY, 0, topN - 1);
+        List<Long> result = new ArrayList<>();
+        if (ids != null) {
+            ids.forEach(id -> result.add(Long.valueOf(id)));
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${product.cache.warmup.persist-interval:PT60S}",
+            initialDelayString = "${product.cache.warmup.persist-interval:PT60S}")
+    public void persist() {
+        Map<Long, Integer> snapshot = candidates;
+        candidates = new ConcurrentHashMap<>();
+        counts = new AtomicIntegerArray(DEPTH * WIDTH);
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> top = topEntries(snapshot);
+        try {
+            ZSetOperations<String, String> zset = redisTemplate.opsForZSet();
+            // Halve every score in place: ZUNIONSTORE of the set with itself, weight 0.5
+            zset.unionAndStore(HOT_IDS_KEY, List.of(), HOT_IDS_KEY, Aggregate.SUM, Weights.of(0.5));
+            for (Map.Entry<Long, Integer> entry : top) {
+                zset.incrementScore(HOT_IDS_KEY, entry.getKey().toString(), entry.getValue());
+            }
+            zset.removeRange(HOT_IDS_KEY, 0, -(long) topN * RETAINED_FACTOR - 1);
+        } catch (Exception e) {
+            logger.warn("Could not persist product access frequencies: {}", e.getMessage());
+        }
+    }
+
+    private void prune(Map<Long, Integer> current) {
+        if (!pruneLock.tryLock()) {
+            return;
+        }
+        try {
+            if (current.size() <= topN * 2) {
+                return;
+            }
+            List<Map.Entry<Long, Integer>> keep = topEntries(current);
+            int threshold = keep.isEmpty() ? 0 : keep.get(keep.size() - 1).getValue();
+            current.values().removeIf(estimate -> estimate < threshold);
+            if (current.size() > topN * 2) {
+                // Mostly ties at the threshold; drop them too rather than sort again on the next record
+                current.values().removeIf(estimate -> estimate <= threshold);
+            }
+        } finally {
+            pruneLock.unlock();
+        }
+    }
+
+    private List<Map.Entry<Long, Integer>> topEntries(Map<Long, Integer> source) {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(source.entrySet());
+        entries.sort(Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder()));
+        return entries.subList(0, Math.min(topN, entries.size()));
+    }
+
+    private static int slot(long productId, int row) {
+        long hash = (productId + 1) * SEEDS[row];
+        return (int) ((hash ^ (hash >>> 32)) & (WIDTH - 1));
+    }
+}
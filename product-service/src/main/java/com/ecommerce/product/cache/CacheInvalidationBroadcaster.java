@@ -0,0 +1,65 @@
+package com.ecommerce.product.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Publishes L1 invalidations over Redis pub/sub and applies the ones sent by other pods.
+ * Message format: {@code <origin>|<E|C>|<cacheName>|<key>}.
+ */
+public class CacheInvalidationBroadcaster implements MessageListener {
+
+    public static final String CHANNEL = "products:cache-invalidation";
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBroadcaster.class);
+    private static final String EVICT = "E";
+    private static final String CLEAR = "C";
+
+    private final String origin = UUID.randomUUID().toString();
+    private final StringRedisTemplate redisTemplate;
+    private TwoLevelCacheManager cacheManager;
+
+    public CacheInvalidationBroadcaster(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    void setCacheManager(TwoLevelCacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public void publishEvict(String cacheName, Object key) {
+        publish(EVICT, cacheName, String.valueOf(key));
+    }
+
+    public void publishClear(String cacheName) {
+        publish(CLEAR, cacheName, "");
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 4);
+        if (parts.length < 4 || origin.equals(parts[0]) || cacheManager == null) {
+            return;
+        }
+        if (CLEAR.equals(parts[1])) {
+            cacheManager.clearLocal(parts[2]);
+        } else {
+            cacheManager.evictLocal(parts[2], parts[3]);
+        }
+    }
+
+    private void publish(String op, String cacheName, String key) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, origin + "|" + op + "|" + cacheName + "|" + key);
+        } catch (Exception e) {
+            // Peers fall back to their L1 TTL if a notification is lost
+            logger.warn("Failed to publish cache invalidation for {}::{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.ecommerce.product.cache;
+
+import com.ecommerce.product.config.ReplicaRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps cache misses from stampeding the database:
+ * <ul>
+ * <li>single-flight: one loader per key per pod, concurrent callers wait for its result;</li>
+ * <li>optionally a short Redis lock so only one pod loads a key, the others poll Redis;</li>
+ * <li>probabilistic early refresh (XFetch) of Redis entries shortly before they expire;</li>
+ * <li>background revalidation of stale L1 entries, which keep being served meanwhile.</li>
+ * </ul>
+ */
+public class CacheLoadCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheLoadCoordinator.class);
+
+    private static final long DEFAULT_LOAD_MILLIS = 50;
+    private static final long PEER_POLL_MILLIS = 25;
+    private static final int REFRESH_QUEUE_CAPACITY = 256;
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ExecutorService refreshExecutor;
+    private final boolean distributedLock;
+    private final Duration lockTimeout;
+    private final double earlyRefreshBeta;
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> loadMillis = new ConcurrentHashMap<>();
+
+    public CacheLoadCoordinator(StringRedisTemplate redisTemplate, int refreshThreads,
+            boolean distributedLock, Duration lockTimeout, double earlyRefreshBeta) {
+        this.redisTemplate = redisTemplate;
+        // Bounded so a burst of stale keys cannot queue unbounded work; overflow is dropped
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(REFRESH_QUEUE_CAPACITY));
+        executor.allowCoreThreadTimeOut(true);
+        this.refreshExecutor = executor;
+        this.distributedLock = distributedLock;
+        this.lockTimeout = lockTimeout;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+    }
+
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Loads {@code key} through {@code loader} and stores it in both tiers, sharing the
+     * result with every concurrent caller for the same key.
+     */
+    Object load(TwoLevelCache cache, String localKey, Object key, Callable<?> loader) {
+        String flightKey = cache.getName() + "::" + localKey;
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw new Cache.ValueRetrievalException(key, loader, e.getCause());
+            }
+        }
+        try {
+            Object value = distributedLock ? loadWithLock(cache, localKey, key, loader, flightKey)
+                    : loadAndStore(cache, localKey, key, loader, flightKey);
+            mine.complete(value);
+            return value;
+        } catch (Throwable t) {
+            mine.completeExceptionally(t);
+            throw new Cache.ValueRetrievalException(key, loader, t);
+        } finally {
+            inFlight.remove(flightKey, mine);
+        }
+    }
+
+    /**
+     * XFetch: refresh when {@code remaining <= loadTime * beta * -ln(rand)}. L1 hides most
+     * reads from Redis, so the next check may come one L1 TTL later; that interval is
+     * added to the window so the refresh still lands before the entry expires.
+     */
+    boolean shouldRefreshEarly(TwoLevelCache cache, String localKey, Duration checkInterval) {
+        if (earlyRefreshBeta <= 0) {
+            return false;
+        }
+        try {
+            Long remaining = redisTemplate.getExpire(cache.getName() + "::" + localKey, TimeUnit.MILLISECONDS);
+            if (remaining == null || remaining < 0) {
+                return false;
+            }
+            long delta = loadMillis.getOrDefault(cache.getName() + "::" + localKey, DEFAULT_LOAD_MILLIS);
+            double window = delta * earlyRefreshBeta * -Math.log(ThreadLocalRandom.current().nextDouble());
+            return remaining <= window + checkInterval.toMillis();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /** Reloads from the source in the background; the caller keeps serving its current value. */
+    void refreshAsync(TwoLevelCache cache, String localKey, Object key, Callable<?> loader) {
+        submit(cache, localKey, () -> load(cache, localKey, key, loader));
+    }
+
+    /** Refreshes a stale L1 entry from Redis, falling back to the source if Redis lost it. */
+    void revalidateAsync(TwoLevelCache cache, String localKey, Object key, Callable<?> loader) {
+        submit(cache, localKey, () -> {
+            Object value = cache.remoteValue(key);
+            if (value != null) {
+                cache.storeLocal(localKey, value);
+            } else {
+                load(cache, localKey, key, loader);
+            }
+        });
+    }
+
+    private void submit(TwoLevelCache cache, String localKey, Runnable refresh) {
+        if (inFlight.containsKey(cache.getName() + "::" + localKey)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh.run();
+                } catch (Exception e) {
+                    logger.debug("Background refresh of {}::{} failed: {}", cache.getName(), localKey, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Refresh queue is full; the entry is reloaded on its next miss instead
+        }
+    }
+
+    private Object loadWithLock(TwoLevelCache cache, String localKey, Object key, Callable<?> loader,
+            String flightKey) throws Exception {
+        String lockKey = "lock:" + flightKey;
+        String token = UUID.randomUUID().toString();
+        boolean acquired = tryLock(lockKey, token);
+        if (!acquired) {
+            Object value = waitForPeer(cache, key);
+            if (value != null) {
+                cache.storeLocal(localKey, value);
+                return value;
+            }
+            // The lock holder is slow or gone; load ourselves rather than fail the request
+        }
+        try {
+            return loadAndStore(cache, localKey, key, loader, flightKey);
+        } finally {
+            if (acquired) {
+                unlock(lockKey, token);
+            }
+        }
+    }
+
+    private Object loadAndStore(TwoLevelCache cache, String localKey, Object key, Callable<?> loader,
+            String flightKey) throws Exception {
+        long loadGeneration = cache.generation(localKey);
+        long start = System.nanoTime();
+        // What we cache outlives replica lag, so it must not be read from a replica
+        Object value = ReplicaRoutingDataSource.onPrimary(loader);
+        long elapsed = System.nanoTime() - start;
+        loadMillis.put(flightKey, Math.max(1, TimeUnit.NANOSECONDS.toMillis(elapsed)));
+        cache.recordLoad(key, elapsed);
+        if (value != null) {
+            cache.store(localKey, key, value, loadGeneration);
+        }
+        return value;
+    }
+
+    private Object waitForPeer(TwoLevelCache cache, Object key) throws InterruptedException {
+        long deadline = System.nanoTime() + lockTimeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(PEER_POLL_MILLIS);
+            Object value = cache.remoteValue(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private boolean tryLock(String lockKey, String token) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, token, lockTimeout));
+        } catch (Exception e) {
+            // Redis trouble must not block loading; fall back to per-pod single-flight
+            return true;
+        }
+    }
+
+    private void unlock(String lockKey, String token) {
+        try {
+            redisTemplate.execute(UNLOCK_SCRIPT, List.of(lockKey), token);
+        } catch (Exception e) {
+            logger.debug("Failed to release cache lock {}: {}", lockKey, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.ecommerce.product.cache;
+
+import com.ecommerce.product.service.ProductService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the product caches, tagged by key family so a single hot family
+ * (the in-stock list, say) is visible next to the per-id entries:
+ * <ul>
+ *   <li>{@code product.cache.gets} - result=hit|miss, tier=l1|redis|none</li>
+ *   <li>{@code product.cache.load} - time to load a missing entry from the database</li>
+ *   <li>{@code product.cache.value.size} - serialized bytes written to Redis, per cache and family</li>
+ *   <li>{@code product.cache.evictions} - cause=explicit|invalidated|size|expired</li>
+ * </ul>
+ * Meters are looked up once per tag combination and then reused, so recording on the
+ * read path is a map lookup and an increment.
+ */
+public class CacheMetrics {
+
+    public static final String FAMILY_ID = "id";
+    public static final String FAMILY_INSTOCK = "instock";
+    public static final String FAMILY_PAGE = "page";
+    public static final String FAMILY_CATEGORY_PAGE = "category-page";
+    public static final String FAMILY_OTHER = "other";
+    /** Family of a clear(), which drops every key of the cache. */
+    public static final String FAMILY_ALL = "*";
+
+    public static final String TIER_L1 = "l1";
+    public static final String TIER_REDIS = "redis";
+
+    public static final String EVICTION_EXPLICIT = "explicit";
+    public static final String EVICTION_INVALIDATED = "invalidated";
+    public static final String EVICTION_SIZE = "size";
+    public static final String EVICTION_EXPIRED = "expired";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<MeterKey, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MeterKey, Timer> loadTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Target, DistributionSummary> valueSizes = new ConcurrentHashMap<>();
+    // The serializer only sees values, so writers name the entry they are writing here
+    private final ThreadLocal<Target> writing = new ThreadLocal<>();
+
+    public CacheMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /** Key family of a cache key, as written by the {@code @Cacheable} keys in ProductService. */
+    public static String family(String cacheName, Object key) {
+        if (ProductService.PAGE_CACHE_NAME.equals(cacheName)) {
+            return String.valueOf(key).startsWith("category:") ? FAMILY_CATEGORY_PAGE : FAMILY_PAGE;
+        }
+        if (key instanceof Number) {
+            return FAMILY_ID;
+        }
+        String text = String.valueOf(key);
+        if (InStockCacheMaintainer.KEY.equals(text)) {
+            return FAMILY_INSTOCK;
+        }
+        return isNumeric(text) ? FAMILY_ID : FAMILY_OTHER;
+    }
+
+    public void hit(String cacheName, String family, String tier) {
+        counter("product.cache.gets", cacheName, family, "result", "hit", "tier", tier).increment();
+    }
+
+    public void miss(String cacheName, String family) {
+        counter("product.cache.gets", cacheName, family, "result", "miss", "tier", "none").increment();
+    }
+
+    public void evicted(String cacheName, String family, String cause) {
+        counter("product.cache.evictions", cacheName, family, "cause", cause, null, null).increment();
+    }
+
+    public void loaded(String cacheName, String family, long nanos) {
+        loadTimers.computeIfAbsent(new MeterKey("product.cache.load", cacheName, family, null, null),
+                key -> Timer.builder(key.name())
+                        .description("Time to load a missing cache entry from the database")
+                        .tag("cache", cacheName)
+                        .tag("family", family)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(10))
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Runs a Redis write of {@code key}, so the value it serializes is sized under its cache and family. */
+    public void writing(String cacheName, Object key, Runnable write) {
+        Target previous = writing.get();
+        writing.set(new Target(cacheName, family(cacheName, key)));
+        try {
+            write.run();
+        } finally {
+            writing.set(previous);
+        }
+    }
+
+    /**
+     * Wraps the cache value serializer to record the size of every value written, under
+     * the cache and family named by {@link #writing}.
+     */
+    public RedisSerializer<Object> metered(RedisSerializer<Object> serializer) {
+        return new RedisSerializer<>() {
+            @Override
+            public byte[] serialize(Object value) throws SerializationException {
+                byte[] bytes = serializer.serialize(value);
+                if (bytes != null && value != null) {
+                    Target target = writing.get();
+                    valueSize(target != null ? target : new Target(FAMILY_OTHER, FAMILY_OTHER)).record(bytes.length);
+                }
+                return bytes;
+            }
+
+            @Override
+            public Object deserialize(byte[] bytes) throws SerializationException {
+                return serializer.deserialize(bytes);
+            }
+        };
+    }
+
+    private DistributionSummary valueSize(Target target) {
+        return valueSizes.computeIfAbsent(target, t -> DistributionSummary.builder("product.cache.value.size")
+                .description("Serialized size of values written to the Redis cache")
+                .baseUnit("bytes")
+                .tag("cache", t.cacheName())
+                .tag("family", t.family())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(64.0)
+                .maximumExpectedValue(16.0 * 1024 * 1024)
+                .register(registry));
+    }
+
+    private Counter counter(String name, String cacheName, String family, String tag, String value,
+            String tag2, String value2) {
+        MeterKey key = new MeterKey(name, cacheName, family, value, value2);
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        return counters.computeIfAbsent(key, k -> {
+            Counter.Builder builder = Counter.builder(name)
+                    .tag("cache", cacheName)
+                    .tag("family", family)
+                    .tag(tag, value);
+            if (tag2 != null) {
+                builder.tag(tag2, value2);
+            }
+            return builder.register(registry);
+        });
+    }
+
+    private static boolean isNumeric(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record Target(String cacheName, String family) {
+    }
+
+    private record MeterKey(String name, String cacheName, String family, String value, String value2) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.ecommerce.product.cache;
+
+import com.ecommerce.product.exception.ProductNotFoundException;
+import com.ecommerce.product.service.ProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills the product caches before the pod reports ready: the in-stock list, the first
+ * listing pages and the most requested products according to {@link AccessFrequencySketch}.
+ * Readiness only turns to ACCEPTING_TRAFFIC once every ApplicationRunner has returned,
+ * so the first requests a new pod receives are cache hits. Warming goes through
+ * {@link ProductService}, so entries still in Redis only fill L1 and missing ones are
+ * loaded from Postgres.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class CacheWarmer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private AccessFrequencySketch accessSketch;
+
+    @Value("${product.cache.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${product.cache.warmup.pages:5}")
+    private int pages;
+
+    @Value("${product.cache.warmup.threads:8}")
+    private int threads;
+
+    @Value("${product.cache.warmup.timeout:30s}")
+    private Duration timeout;
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        AtomicInteger warmed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            tasks.add(executor.submit(() -> warm(warmed, productService::getProductsInStock)));
+            tasks.add(executor.submit(() -> warmPages(warmed, ProductService.DEFAULT_PAGE_SIZE)));
+            tasks.add(executor.submit(() -> warmPages(warmed, ProductService.MAX_PAGE_SIZE)));
+            List<Long> hotIds = hotIds();
+            for (Long id : hotIds) {
+                tasks.add(executor.submit(() -> warm(warmed, () -> productService.getProductById(id))));
+            }
+            awaitAll(tasks, System.nanoTime() + timeout.toNanos());
+            logger.info("Cache warm-up loaded {} entries ({} hot products) in {} ms",
+                    warmed.get(), hotIds.size(), System.currentTimeMillis() - start);
+        } catch (TimeoutException e) {
+            // Serve partially warm rather than hold the pod out of rotation
+            logger.warn("Cache warm-up stopped after {}: {} entries loaded", timeout, warmed.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Pages as requested by the listing endpoints: the streamed GET /products and /products/page. */
+    private void warmPages(AtomicInteger warmed, int size) {
+        Long cursor = 0L;
+        for (int i = 0; i < pages && cursor != null && !Thread.currentThread().isInterrupted(); i++) {
+            long after = cursor;
+            cursor = productService.getProductPage(after, size).getNextCursor();
+            warmed.incrementAndGet();
+        }
+    }
+
+    private List<Long> hotIds() {
+        try {
+            return accessSketch.hotIds();
+        } catch (Exception e) {
+            logger.warn("No access frequencies to warm from: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static void warm(AtomicInteger warmed, Runnable load) {
+        try {
+            load.run();
+            warmed.incrementAndGet();
+        } catch (ProductNotFoundException e) {
+            // Hot id deleted since it was recorded
+        } catch (RuntimeException e) {
+            logger.debug("Cache warm-up entry failed: {}", e.getMessage());
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> tasks, long deadline) throws InterruptedException, TimeoutException {
+        for (Future<?> task : tasks) {
+            try {
+                task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                logger.debug("Cache warm-up task failed: {}", e.getCause().getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ecommerce.product.cache;
+
+import com.ecommerce.product.event.ProductChangedEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Cluster-wide catalog version kept in a Redis hash and bumped after every committed
+ * product change. Collection endpoints derive their ETag and Last-Modified from it, so
+ * a conditional request is answered without loading or serializing the catalog.
+ */
+@Component
+public class CatalogVersion {
+
+    static final String KEY = "products:catalog-version";
+    private static final String VERSION = "version";
+    private static final String MODIFIED_AT = "modifiedAt";
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogVersion.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!event.isRemote()) {
+            bump();
+        }
+    }
+
+    public void bump() {
+        try {
+            HashOperations<String, String, String> hash = redisTemplate.opsForHash();
+            hash.increment(KEY, VERSION, 1);
+            hash.put(KEY, MODIFIED_AT, String.valueOf(System.currentTimeMillis()));
+        } catch (Exception e) {
+            logger.warn("Failed to bump catalog version: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Current version, or null when Redis is unavailable (responses then carry no validators).
+     */
+    public Snapshot current() {
+        try {
+            HashOperations<String, String, String> hash = redisTemplate.opsForHash();
+            List<String> values = hash.multiGet(KEY, List.of(VERSION, MODIFIED_AT));
+            if (values.get(0) == null || values.get(1) == null) {
+                // Missing (first start or evicted): restart from a fresh timestamp so old ETags never match
+                hash.putIfAbsent(KEY, VERSION, "0");
+                hash.putIfAbsent(KEY, MODIFIED_AT, String.valueOf(System.currentTimeMillis()));
+                values = hash.multiGet(KEY, List.of(VERSION, MODIFIED_AT));
+            }
+            return new Snapshot(Long.parseLong(values.get(0)), Long.parseLong(values.get(1)));
+        } catch (Exception e) {
+            logger.warn("Failed to read catalog version: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+        private final long version;
+        private final long modifiedAt;
+
+        public String etag() {
+            return "\"v" + version + "-" + modifiedAt + "\"";
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.ecommerce.product.cache;
+
+import com.ecommerce.product.config.ReplicaRoutingDataSource;
+import com.ecommerce.product.event.ProductChangedEvent;
+import com.ecommerce.product.model.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import com.ecommerce.product.service.ProductService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves the in-stock list from a Redis hash of product id to product, patched with one
+ * HSET or HDEL per change, so a product write never costs a full in-stock reload or a
+ * rewrite of the whole list.
+ *
+ * <p>A second hash holds each product's {@code updatedAt}, and a change older than the
+ * stored one is skipped, so changes that arrive out of order cannot roll an element back.
+ * A version counter is bumped by every change and every reload. Readers keep a local copy
+ * of the list and only fetch the hash again when the version moved; a reload from the
+ * database is only stored if no change slipped in while it ran.
+ *
+ * <p>Changes are queued and applied by one worker. A product that comes back into stock
+ * is read from the primary, because the event only carries its new quantity.
+ */
+@Component
+public class InStockCacheMaintainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(InStockCacheMaintainer.class);
+
+    static final String KEY = "instock";
+    private static final String ITEMS_KEY = ProductService.CACHE_NAME + "::" + KEY + ":items";
+    private static final String STAMPS_KEY = ProductService.CACHE_NAME + "::" + KEY + ":stamps";
+    private static final String VERSION_KEY = ProductService.CACHE_NAME + "::" + KEY + ":version";
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final long APPLIED = 1;
+    private static final long CONFLICT = 2;
+
+    // ARGV: id, updatedAt millis or '', expected stamp or '*', product or '' to remove.
+    // Returns 0 when the hash is not loaded, 1 when applied or skipped as older, 2 on a stamp mismatch
+    private static final DefaultRedisScript<Long> APPLY_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('incr', KEYS[3]) "
+            + "if redis.call('exists', KEYS[2]) == 0 then return 0 end "
+            + "local current = redis.call('hget', KEYS[2], ARGV[1]) "
+            + "if ARGV[3] ~= '*' and (current or '') ~= ARGV[3] then return 2 end "
+            + "if current and ARGV[2] ~= '' and tonumber(ARGV[2]) < tonumber(current) then return 1 end "
+            + "if ARGV[4] == '' then redis.call('hdel', KEYS[1], ARGV[1]) "
+            + "else redis.call('hset', KEYS[1], ARGV[1], ARGV[4]) "
+            + "local ttl = redis.call('pttl', KEYS[2]) "
+            + "if ttl > 0 then redis.call('pexpire', KEYS[1], ttl) end end "
+            + "if ARGV[2] ~= '' then redis.call('hset', KEYS[2], ARGV[1], ARGV[2]) end "
+            + "return 1",
+            Long.class);
+    // ARGV: version the load started at, TTL millis, then id, updatedAt millis, product per element
+    private static final DefaultRedisScript<Long> FILL_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('get', KEYS[3]) or '0') ~= ARGV[1] then return -1 end "
+            + "redis.call('del', KEYS[1], KEYS[2]) "
+            + "redis.call('hset', KEYS[2], '~', '0') "
+            + "for i = 3, #ARGV, 3 do "
+            + "redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 2]) "
+            + "redis.call('hset', KEYS[2], ARGV[i], ARGV[i + 1]) end "
+            + "redis.call('pexpire', KEYS[1], ARGV[2]) "
+            + "redis.call('pexpire', KEYS[2], ARGV[2]) "
+            + "return redis.call('incr', KEYS[3])",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisSerializer<Object> cacheValueSerializer;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CacheMetrics metrics;
+
+    @Value("${product.cache.instock.ttl:10m}")
+    private Duration ttl;
+
+    private final Queue<ProductChangedEvent> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "instock-cache-patcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // One database reload per pod at a time
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(String version, List<Product> products) {
+    }
+
+    /** The in-stock products in id order. Falls back to the database when Redis is unavailable. */
+    public List<Product> inStock() {
+        String family = CacheMetrics.FAMILY_INSTOCK;
+        try {
+            String version = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+            Snapshot local = snapshot;
+            if (local != null && local.version().equals(version)) {
+                metrics.hit(ProductService.CACHE_NAME, family, CacheMetrics.TIER_L1);
+                return local.products();
+            }
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(STAMPS_KEY))) {
+                List<Product> products = sorted(redisTemplate.<String, Object>opsForHash().values(ITEMS_KEY));
+                snapshot = new Snapshot(String.valueOf(version), products);
+                metrics.hit(ProductService.CACHE_NAME, family, CacheMetrics.TIER_REDIS);
+                return products;
+            }
+            metrics.miss(ProductService.CACHE_NAME, family);
+            return load(version);
+        } catch (DataAccessException e) {
+            logger.warn("In-stock cache unavailable, reading the database: {}", e.getMessage());
+            return fromPrimary(productRepository::findAllInStock);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isRemote()) {
+            // The originating pod patched Redis; the version bump reaches our local copy
+            return;
+        }
+        pending.add(event);
+        if (draining.compareAndSet(false, true)) {
+            worker.execute(this::drain);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+
+    private List<Product> load(String versionSeen) {
+        loadLock.lock();
+        try {
+            // Another thread may have loaded while we waited
+            String version = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+            Snapshot local = snapshot;
+            if (local != null && local.version().equals(version) && !local.version().equals(versionSeen)) {
+                return local.products();
+            }
+            long start = System.nanoTime();
+            List<Product> products = fromPrimary(productRepository::findAllInStock);
+            metrics.loaded(ProductService.CACHE_NAME, CacheMetrics.FAMILY_INSTOCK, System.nanoTime() - start);
+            List<byte[]> args = new ArrayList<>(2 + products.size() * 3);
+            args.add(bytes(version != null ? version : "0"));
+            args.add(bytes(String.valueOf(ttl.toMillis())));
+            for (Product product : products) {
+                args.add(bytes(String.valueOf(product.getId())));
+                args.add(bytes(stamp(product.getUpdatedAt(), "0")));
+                args.add(cacheValueSerializer.serialize(product));
+            }
+            Long stored = script(FILL_SCRIPT, args);
+            if (stored != null && stored > 0) {
+                snapshot = new Snapshot(String.valueOf(stored), products);
+            } else {
+                // A change landed while we read; serve what we read, the next reader loads again
+                logger.debug("In-stock reload raced a change, not stored");
+            }
+            return products;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void drain() {
+        try {
+            // Latest change per product, in arrival order
+            Map<Long, ProductChangedEvent> changes = new LinkedHashMap<>();
+            ProductChangedEvent change;
+            while ((change = pending.poll()) != null) {
+                changes.remove(change.getProductId());
+                changes.put(change.getProductId(), change);
+            }
+            for (ProductChangedEvent latest : changes.values()) {
+                apply(latest);
+            }
+        } finally {
+            draining.set(false);
+            if (!pending.isEmpty() && draining.compareAndSet(false, true)) {
+                worker.execute(this::drain);
+            }
+        }
+    }
+
+    private void apply(ProductChangedEvent change) {
+        try {
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+                Long outcome = applyOnce(change);
+                if (outcome == null || outcome != CONFLICT) {
+                    return;
+                }
+                logger.debug("In-stock cache patch of product {} conflicted, attempt {}",
+                        change.getProductId(), attempt);
+            }
+            evict();
+        } catch (RuntimeException e) {
+            logger.warn("Could not patch the in-stock cache: {}", e.getMessage());
+            evict();
+        }
+    }
+
+    private Long applyOnce(ProductChangedEvent change) {
+        String id = String.valueOf(change.getProductId());
+        String updatedAt = stamp(change.getUpdatedAt(), "");
+        switch (change.getType()) {
+            case DELETED -> {
+                return script(APPLY_SCRIPT, List.of(bytes(id), bytes(updatedAt), bytes("*"), new byte[0]));
+            }
+            case UPSERTED -> {
+                Product product = change.getProduct();
+                byte[] value = inStock(product.getStockQuantity()) ? cacheValueSerializer.serialize(product) : new byte[0];
+                return script(APPLY_SCRIPT, List.of(bytes(id), bytes(updatedAt), bytes("*"), value));
+            }
+            default -> {
+                if (!inStock(change.getStockQuantity())) {
+                    return script(APPLY_SCRIPT, List.of(bytes(id), bytes(updatedAt), bytes("*"), new byte[0]));
+                }
+                Object stamp = stringRedisTemplate.opsForHash().get(STAMPS_KEY, id);
+                Object cached = redisTemplate.opsForHash().get(ITEMS_KEY, id);
+                if (stamp == null && cached == null && !Boolean.TRUE.equals(redisTemplate.hasKey(STAMPS_KEY))) {
+                    return script(APPLY_SCRIPT, List.of(bytes(id), bytes(updatedAt), bytes("*"), new byte[0]));
+                }
+                Product product;
+                if (cached instanceof Product current) {
+                    product = current.toBuilder()
+                            .stockQuantity(change.getStockQuantity())
+                            .updatedAt(change.getUpdatedAt())
+                            .build();
+                } else {
+                    // Back in stock: the event only has the quantity, so read the row itself
+                    product = fromPrimary(() -> productRepository.findById(change.getProductId()).orElse(null));
+                    if (product == null || !inStock(product.getStockQuantity())) {
+                        return APPLIED;
+                    }
+                    updatedAt = stamp(product.getUpdatedAt(), updatedAt);
+                }
+                String expected = stamp != null ? stamp.toString() : "";
+                return script(APPLY_SCRIPT, List.of(bytes(id), bytes(updatedAt), bytes(expected),
+                        cacheValueSerializer.serialize(product)));
+            }
+        }
+    }
+
+    /** Drops the hash; the next reader reloads it from the database. */
+    private void evict() {
+        try {
+            redisTemplate.delete(List.of(ITEMS_KEY, STAMPS_KEY));
+            stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+        } catch (RuntimeException e) {
+            logger.warn("Could not evict the in-stock cache: {}", e.getMessage());
+        }
+    }
+
+    private Long script(DefaultRedisScript<Long> script, List<byte[]> args) {
+        return redisTemplate.execute(script, RedisSerializer.byteArray(), new GenericToStringSerializer<>(Long.class),
+                List.of(ITEMS_KEY, STAMPS_KEY, VERSION_KEY), args.toArray());
+    }
+
+    /** The list reaches the cache, so it is read from the primary even inside a read-only transaction. */
+    private static <T> T fromPrimary(Callable<T> query) {
+        try {
+            return ReplicaRoutingDataSource.onPrimary(query);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Product> sorted(List<Object> values) {
+        List<Product> products = new ArrayList<>(values.size());
+        for (Object value : values) {
+            products.add((Product) value);
+        }
+        products.sort(Comparator.comparing(Product::getId));
+        return List.copyOf(products);
+    }
+
+    private static boolean inStock(Integer stockQuantity) {
+        return stockQuantity != null && stockQuantity > 0;
+    }
+
+    private static String stamp(LocalDateTime updatedAt, String unknown) {
+        return updatedAt != null ? String.valueOf(updatedAt.toInstant(ZoneOffset.UTC).toEpochMilli()) : unknown;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
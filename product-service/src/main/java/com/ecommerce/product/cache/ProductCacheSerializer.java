@@ -0,0 +1,281 @@
+package com.ecommerce.product.cache;
+
+import com.ecommerce.product.dto.ProductPage;
+import com.ecommerce.product.model.Product;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact binary encoding for the product cache values ({@link Product}, {@code List<Product>}
+ * and {@link ProductPage}); anything else falls back to JSON. Values are framed as
+ * {@code [format version][flags][type][payload]} and the payload is deflated once it
+ * exceeds {@code compressionThreshold} bytes.
+ *
+ * <p>JSON values written by the previous serializer start with '{' or '[' and are still
+ * readable, so the cache does not need flushing when switching formats.
+ */
+public class ProductCacheSerializer implements RedisSerializer<Object> {
+
+    private static final byte FORMAT_V1 = 1;
+    private static final byte FLAG_DEFLATED = 1;
+
+    private static final byte TYPE_JSON = 0;
+    private static final byte TYPE_PRODUCT = 1;
+    private static final byte TYPE_PRODUCT_LIST = 2;
+    private static final byte TYPE_PRODUCT_PAGE = 3;
+
+    // Presence bits for the nullable Product fields
+    private static final int HAS_ID = 1;
+    private static final int HAS_NAME = 1 << 1;
+    private static final int HAS_DESCRIPTION = 1 << 2;
+    private static final int HAS_PRICE = 1 << 3;
+    private static final int HAS_STOCK = 1 << 4;
+    private static final int HAS_CATEGORY = 1 << 5;
+    private static final int HAS_IMAGE = 1 << 6;
+    private static final int HAS_CREATED_AT = 1 << 7;
+    private static final int HAS_UPDATED_AT = 1 << 8;
+
+    private final RedisSerializer<Object> jsonSerializer;
+    private final int compressionThreshold;
+
+    public ProductCacheSerializer(RedisSerializer<Object> jsonSerializer, int compressionThreshold) {
+        this.jsonSerializer = jsonSerializer;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            byte type;
+            byte[] payload;
+            if (value instanceof Product product) {
+                type = TYPE_PRODUCT;
+                payload = encode(out -> writeProduct(out, product));
+            } else if (value instanceof ProductPage page) {
+                type = TYPE_PRODUCT_PAGE;
+                payload = encode(out -> writePage(out, page));
+            } else if (isProductList(value)) {
+                type = TYPE_PRODUCT_LIST;
+                @SuppressWarnings("unchecked")
+                List<Product> products = (List<Product>) value;
+                payload = encode(out -> writeProducts(out, products));
+            } else {
+                type = TYPE_JSON;
+                payload = jsonSerializer.serialize(value);
+            }
+
+            byte flags = 0;
+            if (payload.length > compressionThreshold) {
+                payload = deflate(payload);
+                flags |= FLAG_DEFLATED;
+            }
+            byte[] framed = new byte[payload.length + 3];
+            framed[0] = FORMAT_V1;
+            framed[1] = flags;
+            framed[2] = type;
+            System.arraycopy(payload, 0, framed, 3, payload.length);
+            return framed;
+        } catch (IOException e) {
+            throw new SerializationException("Could not encode cache value", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != FORMAT_V1) {
+            return jsonSerializer.deserialize(bytes);
+        }
+        try {
+            InputStream payload = new ByteArrayInputStream(bytes, 3, bytes.length - 3);
+            if ((bytes[1] & FLAG_DEFLATED) != 0) {
+                payload = new InflaterInputStream(payload);
+            }
+            DataInputStream in = new DataInputStream(payload);
+            return switch (bytes[2]) {
+                case TYPE_PRODUCT -> readProduct(in);
+                case TYPE_PRODUCT_LIST -> readProducts(in);
+                case TYPE_PRODUCT_PAGE -> readPage(in);
+                case TYPE_JSON -> jsonSerializer.deserialize(in.readAllBytes());
+                default -> throw new SerializationException("Unknown cache value type " + bytes[2]);
+            };
+        } catch (IOException e) {
+            throw new SerializationException("Could not decode cache value", e);
+        }
+    }
+
+    private static boolean isProductList(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return false;
+        }
+        for (Object element : list) {
+            if (!(element instanceof Product)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writePage(DataOutputStream out, ProductPage page) throws IOException {
+        out.writeBoolean(page.getNextCursor() != null);
+        if (page.getNextCursor() != null) {
+            out.writeLong(page.getNextCursor());
+        }
+        writeProducts(out, page.getItems());
+    }
+
+    private static ProductPage readPage(DataInputStream in) throws IOException {
+        Long nextCursor = in.readBoolean() ? in.readLong() : null;
+        return new ProductPage(readProducts(in), nextCursor);
+    }
+
+    private static void writeProducts(DataOutputStream out, List<Product> products) throws IOException {
+        out.writeInt(products.size());
+        for (Product product : products) {
+            writeProduct(out, product);
+        }
+    }
+
+    private static List<Product> readProducts(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(readProduct(in));
+        }
+        return products;
+    }
+
+    private static void writeProduct(DataOutputStream out, Product p) throws IOException {
+        int present = (p.getId() != null ? HAS_ID : 0)
+                | (p.getName() != null ? HAS_NAME : 0)
+                | (p.getDescription() != null ? HAS_DESCRIPTION : 0)
+                | (p.getPrice() != null ? HAS_PRICE : 0)
+                | (p.getStockQuantity() != null ? HAS_STOCK : 0)
+                | (p.getCategory() != null ? HAS_CATEGORY : 0)
+                | (p.getImage() != null ? HAS_IMAGE : 0)
+                | (p.getCreatedAt() != null ? HAS_CREATED_AT : 0)
+                | (p.getUpdatedAt() != null ? HAS_UPDATED_AT : 0);
+        out.writeShort(present);
+        if (p.getId() != null) {
+            out.writeLong(p.getId());
+        }
+        if (p.getName() != null) {
+            out.writeUTF(p.getName());
+        }
+        if (p.getDescription() != null) {
+            out.writeUTF(p.getDescription());
+        }
+        if (p.getPrice() != null) {
+            byte[] unscaled = p.getPrice().unscaledValue().toByteArray();
+            out.writeByte(p.getPrice().scale());
+            out.writeByte(unscaled.length);
+            out.write(unscaled);
+        }
+        if (p.getStockQuantity() != null) {
+            out.writeInt(p.getStockQuantity());
+        }
+        if (p.getCategory() != null) {
+            out.writeUTF(p.getCategory());
+        }
+        if (p.getImage() != null) {
+            out.writeUTF(p.getImage());
+        }
+        if (p.getCreatedAt() != null) {
+            writeTimestamp(out, p.getCreatedAt());
+        }
+        if (p.getUpdatedAt() != null) {
+            writeTimestamp(out, p.getUpdatedAt());
+        }
+    }
+
+    private static Product readProduct(DataInputStream in) throws IOException {
+        int present = in.readUnsignedShort();
+        Product p = new Product();
+        if ((present & HAS_ID) != 0) {
+            p.setId(in.readLong());
+        }
+        if ((present & HAS_NAME) != 0) {
+            p.setName(in.readUTF());
+        }
+        if ((present & HAS_DESCRIPTION) != 0) {
+            p.setDescription(in.readUTF());
+        }
+        if ((present & HAS_PRICE) != 0) {
+            int scale = in.readByte();
+            byte[] unscaled = new byte[in.readUnsignedByte()];
+            in.readFully(unscaled);
+            p.setPrice(new BigDecimal(new BigInteger(unscaled), scale));
+        }
+        if ((present & HAS_STOCK) != 0) {
+            p.setStockQuantity(in.readInt());
+        }
+        if ((present & HAS_CATEGORY) != 0) {
+            p.setCategory(in.readUTF());
+        }
+        if ((present & HAS_IMAGE) != 0) {
+            p.setImage(in.readUTF());
+        }
+        if ((present & HAS_CREATED_AT) != 0) {
+            p.setCreatedAt(readTimestamp(in));
+        }
+        if ((present & HAS_UPDATED_AT) != 0) {
+            p.setUpdatedAt(readTimestamp(in));
+        }
+        return p;
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime timestamp) throws IOException {
+        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(timestamp.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        long seconds = in.readLong();
+        return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static byte[] encode(PayloadWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length / 2);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(payload);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,243 @@
+package com.ecommerce.product.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache with an optional in-heap L1 (Caffeine) in front of the shared Redis L2.
+ * Reads are served from L1 when possible; every put/evict/clear is written through
+ * to Redis and broadcast so the other pods drop their stale L1 copy.
+ *
+ * <p>Misses on {@link #get(Object, Callable)} go through the {@link CacheLoadCoordinator}, so
+ * a hot key expiring costs one database load rather than one per concurrent request. L1
+ * entries older than {@code softTtl} are still served while they are revalidated in the
+ * background, until Caffeine drops them at {@code softTtl + stale-while-revalidate}.
+ *
+ * <p>A load only caches its value if no put or evict touched the key since the load began.
+ * Writes are tracked per key stripe, so writes to other keys do not discard the load.
+ */
+public class TwoLevelCache implements Cache {
+
+    private static final int STRIPES = 64;
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, LocalEntry> local;
+    private final Cache remote;
+    private final CacheInvalidationBroadcaster broadcaster;
+    private final CacheLoadCoordinator coordinator;
+    private final Duration softTtl;
+    private final CacheMetrics metrics;
+    // Per stripe, bumped on every put/evict of a key in it and on clear
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    // Orders a load's check-and-store against writes to the same stripe
+    private final ReentrantLock[] writeLocks = new ReentrantLock[STRIPES];
+
+    public TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<String, LocalEntry> local,
+            Cache remote, CacheInvalidationBroadcaster broadcaster, CacheLoadCoordinator coordinator,
+            Duration softTtl, CacheMetrics metrics) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.broadcaster = broadcaster;
+        this.coordinator = coordinator;
+        this.softTtl = softTtl;
+        this.metrics = metrics;
+        for (int i = 0; i < STRIPES; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String family = CacheMetrics.family(name, key);
+        LocalEntry entry = localEntry(localKey(key));
+        if (entry != null) {
+            metrics.hit(name, family, CacheMetrics.TIER_L1);
+            return new SimpleValueWrapper(entry.value());
+        }
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            metrics.hit(name, family, CacheMetrics.TIER_REDIS);
+            storeLocal(localKey(key), wrapper.get());
+        } else {
+            metrics.miss(name, family);
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        String family = CacheMetrics.family(name, key);
+        LocalEntry entry = localEntry(localKey);
+        if (entry != null) {
+            metrics.hit(name, family, CacheMetrics.TIER_L1);
+            if (System.nanoTime() - entry.storedAt() > softTtl.toNanos()) {
+                coordinator.revalidateAsync(this, localKey, key, valueLoader);
+            }
+            return (T) entry.value();
+        }
+        Object value = remoteValue(key);
+        if (value != null) {
+            metrics.hit(name, family, CacheMetrics.TIER_REDIS);
+            storeLocal(localKey, value);
+            if (coordinator.shouldRefreshEarly(this, localKey, local != null ? softTtl : Duration.ZERO)) {
+                coordinator.refreshAsync(this, localKey, key, valueLoader);
+            }
+            return (T) value;
+        }
+        metrics.miss(name, family);
+        return (T) coordinator.load(this, localKey, key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String localKey = localKey(key);
+        ReentrantLock lock = writeLocks[stripe(localKey)];
+        lock.lock();
+        try {
+            // A slower load that started before this put must not overwrite it
+            generations.incrementAndGet(stripe(localKey));
+            metrics.writing(name, key, () -> remote.put(key, value));
+            if (value != null) {
+                storeLocal(localKey, value);
+            } else {
+                evictLocal(localKey);
+            }
+        } finally {
+            lock.unlock();
+        }
+        broadcaster.publishEvict(name, localKey);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = localKey(key);
+        metrics.evicted(name, CacheMetrics.family(name, key), CacheMetrics.EVICTION_EXPLICIT);
+        ReentrantLock lock = writeLocks[stripe(localKey)];
+        lock.lock();
+        try {
+            remote.evict(key);
+            evictLocal(localKey);
+        } finally {
+            lock.unlock();
+        }
+        broadcaster.publishEvict(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        metrics.evicted(name, CacheMetrics.FAMILY_ALL, CacheMetrics.EVICTION_EXPLICIT);
+        remote.clear();
+        clearLocal();
+        broadcaster.publishClear(name);
+    }
+
+    /** Drops a key from this pod's L1 only; used when another pod announced a change. */
+    void evictLocal(String key) {
+        generations.incrementAndGet(stripe(key));
+        if (local != null) {
+            local.invalidate(key);
+        }
+    }
+
+    void clearLocal() {
+        for (int i = 0; i < STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        if (local != null) {
+            local.invalidateAll();
+        }
+    }
+
+    /** Dropped from L1 because the entry changed elsewhere (another pod, or a patch in Redis). */
+    void invalidatedLocal(String key) {
+        metrics.evicted(name, CacheMetrics.family(name, key), CacheMetrics.EVICTION_INVALIDATED);
+        evictLocal(key);
+    }
+
+    void invalidatedAllLocal() {
+        metrics.evicted(name, CacheMetrics.FAMILY_ALL, CacheMetrics.EVICTION_INVALIDATED);
+        clearLocal();
+    }
+
+    void recordLoad(Object key, long nanos) {
+        metrics.loaded(name, CacheMetrics.family(name, key), nanos);
+    }
+
+    long generation(String localKey) {
+        return generations.get(stripe(localKey));
+    }
+
+    Object remoteValue(Object key) {
+        ValueWrapper wrapper = remote.get(key);
+        return wrapper != null ? wrapper.get() : null;
+    }
+
+    /**
+     * Caches a freshly loaded value in both tiers, unless the key was written or invalidated
+     * since {@code loadGeneration}. No broadcast: the value came from the source of truth.
+     */
+    void store(String localKey, Object key, Object value, long loadGeneration) {
+        int stripe = stripe(localKey);
+        writeLocks[stripe].lock();
+        try {
+            if (generations.get(stripe) != loadGeneration) {
+                return;
+            }
+            metrics.writing(name, key, () -> remote.put(key, value));
+            storeLocal(localKey, value);
+        } finally {
+            writeLocks[stripe].unlock();
+        }
+    }
+
+    void storeLocal(String localKey, Object value) {
+        if (local != null) {
+            local.put(localKey, new LocalEntry(value, System.nanoTime()));
+        }
+    }
+
+    private LocalEntry localEntry(String localKey) {
+        return local != null ? local.getIfPresent(localKey) : null;
+    }
+
+    private static int stripe(String localKey) {
+        return (localKey.hashCode() & Integer.MAX_VALUE) % STRIPES;
+    }
+
+    /** Redis stringifies keys, so L1 does the same to keep remote invalidations addressable. */
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    record LocalEntry(Object value, long storedAt) {
+    }
+}
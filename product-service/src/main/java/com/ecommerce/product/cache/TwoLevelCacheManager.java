@@ -0,0 +1,103 @@
+package com.ecommerce.product.cache;
+
+import com.ecommerce.product.dto.ProductPage;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decorates the Redis cache manager with a size-bounded, TTL'd in-heap L1 per cache
+ * (or no L1 when {@code maxWeight} is 0) and stampede-protected loading.
+ * L1 weight is measured in products, so a cached list weighs as much as its elements.
+ * Caches are handed out transaction-aware: puts, evictions and clears made inside a
+ * transaction are applied after it commits, so a concurrent reader cannot reload and cache
+ * the row as it was before the commit.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+    private final CacheManager remoteCacheManager;
+    private final CacheInvalidationBroadcaster broadcaster;
+    private final CacheLoadCoordinator coordinator;
+    private final long maxWeight;
+    private final Duration ttl;
+    private final Duration staleWhileRevalidate;
+    private final CacheMetrics metrics;
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Cache> transactionAwareCaches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, CacheInvalidationBroadcaster broadcaster,
+            CacheLoadCoordinator coordinator, long maxWeight, Duration ttl, Duration staleWhileRevalidate,
+            CacheMetrics metrics) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.broadcaster = broadcaster;
+        this.coordinator = coordinator;
+        this.maxWeight = maxWeight;
+        this.ttl = ttl;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.metrics = metrics;
+        broadcaster.setCacheManager(this);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return transactionAwareCaches.computeIfAbsent(name,
+                cacheName -> new TransactionAwareCacheDecorator(caches.computeIfAbsent(cacheName, this::createCache)));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remoteCacheManager.getCacheNames();
+    }
+
+    void evictLocal(String cacheName, String key) {
+        TwoLevelCache cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.invalidatedLocal(key);
+        }
+    }
+
+    void clearLocal(String cacheName) {
+        TwoLevelCache cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.invalidatedAllLocal();
+        }
+    }
+
+    private TwoLevelCache createCache(String name) {
+        com.github.benmanes.caffeine.cache.Cache<String, TwoLevelCache.LocalEntry> local = null;
+        if (maxWeight > 0) {
+            local = Caffeine.newBuilder()
+                    .maximumWeight(maxWeight)
+                    .weigher((String key, TwoLevelCache.LocalEntry entry) -> weigh(entry.value()))
+                    .expireAfterWrite(ttl.plus(staleWhileRevalidate))
+                    .removalListener((String key, TwoLevelCache.LocalEntry entry, RemovalCause cause) -> {
+                        // Explicit removals are counted where they are made
+                        if (cause == RemovalCause.SIZE) {
+                            metrics.evicted(name, CacheMetrics.family(name, key), CacheMetrics.EVICTION_SIZE);
+                        } else if (cause == RemovalCause.EXPIRED) {
+                            metrics.evicted(name, CacheMetrics.family(name, key), CacheMetrics.EVICTION_EXPIRED);
+                        }
+                    })
+                    .build();
+        }
+        return new TwoLevelCache(name, local, remoteCacheManager.getCache(name), broadcaster, coordinator, ttl,
+                metrics);
+    }
+
+    private static int weigh(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return Math.max(1, collection.size());
+        }
+        if (value instanceof ProductPage page) {
+            return Math.max(1, page.getItems().size());
+        }
+        return 1;
+    }
+}
@@ -1,13 +1,29 @@
 package com.ecommerce.product.config;
 
+import com.ecommerce.product.cache.CacheInvalidationBroadcaster;
+import com.ecommerce.product.cache.CacheLoadCoordinator;
+import com.ecommerce.product.cache.CacheMetrics;
+import com.ecommerce.product.cache.ProductCacheSerializer;
+import com.ecommerce.product.cache.TwoLevelCacheManager;
+import com.ecommerce.product.event.ProductChangeNotifier;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.BatchStrategies;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
@@ -15,31 +31,116 @@ import java.time.Duration;
 @Configuration
 public class RedisConfig {
 
+    @Value("${product.cache.l1.enabled:false}")
+    private boolean l1Enabled;
+
+    @Value("${product.cache.l1.max-weight:10000}")
+    private long l1MaxWeight;
+
+    @Value("${product.cache.l1.ttl:30s}")
+    private Duration l1Ttl;
+
+    @Value("${product.cache.l1.stale-while-revalidate:30s}")
+    private Duration l1StaleWhileRevalidate;
+
+    @Value("${product.cache.stampede.distributed-lock:false}")
+    private boolean distributedLock;
+
+    @Value("${product.cache.stampede.lock-timeout:3s}")
+    private Duration lockTimeout;
+
+    @Value("${product.cache.stampede.early-refresh-beta:1.0}")
+    private double earlyRefreshBeta;
+
+    @Value("${product.cache.stampede.refresh-threads:2}")
+    private int refreshThreads;
+
+    @Value("${product.cache.serializer:json}")
+    private String serializer;
+
+    @Value("${product.cache.compression-threshold:1024}")
+    private int compressionThreshold;
+
+    /**
+     * Value serializer for cached products: "binary" selects the compact versioned codec,
+     * anything else keeps the Jackson JSON serializer.
+     */
+    @Bean
+    public RedisSerializer<Object> cacheValueSerializer() {
+        if ("binary".equalsIgnoreCase(serializer)) {
+            return new ProductCacheSerializer(jsonSerializer(), compressionThreshold);
+        }
+        return jsonSerializer();
+    }
+
+    /** Product timestamps are LocalDateTime, which the serializer's own ObjectMapper cannot write without JSR-310. */
+    private static GenericJackson2JsonRedisSerializer jsonSerializer() {
+        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+        jsonSerializer.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+        return jsonSerializer;
+    }
+
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public CacheMetrics cacheMetrics(MeterRegistry meterRegistry) {
+        return new CacheMetrics(meterRegistry);
+    }
+
+    @Bean
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+            RedisSerializer<Object> cacheValueSerializer) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setValueSerializer(cacheValueSerializer);
         template.setHashKeySerializer(new StringRedisSerializer());
-        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setHashValueSerializer(cacheValueSerializer);
         template.afterPropertiesSet();
         return template;
     }
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public CacheInvalidationBroadcaster cacheInvalidationBroadcaster(StringRedisTemplate stringRedisTemplate) {
+        return new CacheInvalidationBroadcaster(stringRedisTemplate);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public CacheLoadCoordinator cacheLoadCoordinator(StringRedisTemplate stringRedisTemplate) {
+        return new CacheLoadCoordinator(stringRedisTemplate, refreshThreads, distributedLock, lockTimeout,
+                earlyRefreshBeta);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+            CacheInvalidationBroadcaster cacheInvalidationBroadcaster, ProductChangeNotifier productChangeNotifier) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheInvalidationBroadcaster,
+                new ChannelTopic(CacheInvalidationBroadcaster.CHANNEL));
+        container.addMessageListener(productChangeNotifier, new ChannelTopic(ProductChangeNotifier.CHANNEL));
+        return container;
+    }
+
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+            CacheInvalidationBroadcaster cacheInvalidationBroadcaster, CacheLoadCoordinator cacheLoadCoordinator,
+            RedisSerializer<Object> cacheValueSerializer, CacheMetrics cacheMetrics) {
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(10))
                 .disableCachingNullValues()
                 .serializeKeysWith(
                         RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
                 .serializeValuesWith(
-                        RedisSerializationContext.SerializationPair.fromSerializer(
-                                new GenericJackson2JsonRedisSerializer()));
+                        RedisSerializationContext.SerializationPair.fromSerializer(cacheMetrics.metered(cacheValueSerializer)));
 
-        return RedisCacheManager.builder(connectionFactory)
+        // Page entries are cleared by pattern on catalog writes and sell-outs; SCAN keeps that off the Redis event loop
+        RedisCacheWriter cacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory,
+                BatchStrategies.scan(1000));
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(cacheWriter)
                 .cacheDefaults(config)
                 .build();
+        redisCacheManager.afterPropertiesSet();
+        // Always wrapped for stampede protection; a zero weight leaves the L1 tier out
+        return new TwoLevelCacheManager(redisCacheManager, cacheInvalidationBroadcaster, cacheLoadCoordinator,
+                l1Enabled ? l1MaxWeight : 0, l1Ttl, l1StaleWhileRevalidate, cacheMetrics);
     }
 }
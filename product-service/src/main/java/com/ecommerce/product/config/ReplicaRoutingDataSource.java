@@ -0,0 +1,80 @@
+package com.ecommerce.product.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Sends connections for read-only transactions to the replica pool while the replica is
+ * within the lag threshold, everything else to the primary. Must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the
+ * transaction's read-only flag is only set after the transaction manager asks for its
+ * connection, so the physical connection has to be fetched lazily on first use.
+ *
+ * <p>Work wrapped in {@link #onPrimary(Callable)} reads from the primary even in a
+ * read-only transaction. Cache loads use it: a value read from a lagging replica would
+ * otherwise be cached, and served, long after the replica caught up.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+    private final Counter lagFallbacks;
+    private final Counter primaryOnlyRoutes;
+
+    public ReplicaRoutingDataSource(ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        this.primaryRoutes = routeCounter(meterRegistry, "primary");
+        this.replicaRoutes = routeCounter(meterRegistry, "replica");
+        this.lagFallbacks = routeCounter(meterRegistry, "primary-lag-fallback");
+        this.primaryOnlyRoutes = routeCounter(meterRegistry, "primary-cache-load");
+    }
+
+    /** Runs {@code work} with every connection it opens routed to the primary. */
+    public static <T> T onPrimary(Callable<T> work) throws Exception {
+        Boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return work.call();
+        } finally {
+            if (previous == null) {
+                PRIMARY_ONLY.remove();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryRoutes.increment();
+            return Route.PRIMARY;
+        }
+        if (PRIMARY_ONLY.get() != null) {
+            primaryOnlyRoutes.increment();
+            return Route.PRIMARY;
+        }
+        if (!lagMonitor.isUsable()) {
+            lagFallbacks.increment();
+            return Route.PRIMARY;
+        }
+        replicaRoutes.increment();
+        return Route.REPLICA;
+    }
+
+    private static Counter routeCounter(MeterRegistry meterRegistry, String route) {
+        return Counter.builder("datasource.routing.connections")
+                .description("Physical connections handed out per routing decision")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+}
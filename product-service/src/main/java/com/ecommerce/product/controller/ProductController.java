@@ -1,17 +1,41 @@
 package com.ecommerce.product.controller;
 
+import com.ecommerce.product.cache.AccessFrequencySketch;
+import com.ecommerce.product.cache.CatalogVersion;
+import com.ecommerce.product.dto.BulkIngestResult;
+import com.ecommerce.product.dto.CategoryFacet;
+import com.ecommerce.product.dto.ProductPage;
+import com.ecommerce.product.dto.StockReservationRequest;
+import com.ecommerce.product.dto.StockReservationResult;
+import com.ecommerce.product.exception.ProductNotFoundException;
+import com.ecommerce.product.inventory.InventoryEngine;
 import com.ecommerce.product.model.Product;
+import com.ecommerce.product.service.ProductBulkIngestService;
+import com.ecommerce.product.service.ProductExportService;
 import com.ecommerce.product.service.ProductService;
+import com.ecommerce.product.service.StockReservationService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/products")
@@ -21,28 +45,138 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductBulkIngestService bulkIngestService;
+
+    @Autowired
+    private ProductExportService exportService;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private AccessFrequencySketch accessSketch;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping
-    @Operation(summary = "Get all products", description = "Returns all products. Response is cached in Redis.")
-    public ResponseEntity<List<Product>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    @Operation(summary = "Get all products",
+            description = "Streams all products as a JSON array, page by page. Each page is cached in Redis. "
+                    + "Supports If-None-Match / If-Modified-Since against the catalog version.")
+    public ResponseEntity<StreamingResponseBody> getAllProducts(WebRequest request) {
+        if (isCatalogNotModified(request)) {
+            return null;
+        }
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                Long cursor = 0L;
+                while (cursor != null) {
+                    ProductPage page = productService.getProductPage(cursor, ProductService.MAX_PAGE_SIZE);
+                    for (Product product : page.getItems()) {
+                        generator.writeObject(inventoryEngine.withVisibleStock(product));
+                    }
+                    generator.flush();
+                    cursor = page.getNextCursor();
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all products as NDJSON",
+            description = "Streams one product per line from a database cursor. "
+                    + "Gzip-compressed when the client sends Accept-Encoding: gzip.")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                exportService.export(compressed);
+                compressed.finish();
+            } else {
+                exportService.export(out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @GetMapping("/page")
+    @Operation(summary = "Get a page of products",
+            description = "Keyset pagination on id. Pass the previous page's nextCursor as cursor.")
+    public ResponseEntity<ProductPage> getProductPage(@RequestParam(defaultValue = "0") long cursor,
+            @RequestParam(defaultValue = "" + ProductService.DEFAULT_PAGE_SIZE) int size) {
+        return ResponseEntity.ok(withVisibleStock(productService.getProductPage(cursor, size)));
+    }
+
+    @GetMapping(params = "category")
+    @Operation(summary = "Get products in a category",
+            description = "Keyset-paginated listing of one category, backed by the in-memory category index")
+    public ResponseEntity<ProductPage> getProductsByCategory(@RequestParam String category,
+            @RequestParam(defaultValue = "0") long cursor,
+            @RequestParam(defaultValue = "" + ProductService.DEFAULT_PAGE_SIZE) int size) {
+        return ResponseEntity.ok(withVisibleStock(productService.getProductsByCategory(category, cursor, size)));
+    }
+
+    @GetMapping("/facets")
+    @Operation(summary = "Get category facets", description = "Product and in-stock counts per category")
+    public ResponseEntity<List<CategoryFacet>> getCategoryFacets() {
+        return ResponseEntity.ok(productService.getCategoryFacets());
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Get product by ID", description = "Returns a specific product by ID. Cached individually.")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        return ResponseEntity.ok(productService.getProductById(id));
+    @Operation(summary = "Get product by ID",
+            description = "Returns a specific product by ID. Cached individually; ETag derives from updatedAt, "
+                    + "and from the stock for products served from memory.")
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
+        accessSketch.record(id);
+        Product cached = productService.getProductById(id);
+        Product product = inventoryEngine.withVisibleStock(cached);
+        if (product.getUpdatedAt() != null) {
+            long lastModified = product.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            // Sales from memory do not touch updatedAt, so the stock goes into the ETag instead
+            boolean notModified = product == cached
+                    ? request.checkNotModified("\"" + id + "-" + lastModified + "\"", lastModified)
+                    : request.checkNotModified("\"" + id + "-" + lastModified + "-" + product.getStockQuantity() + "\"");
+            if (notModified) {
+                return null;
+            }
+        }
+        return ResponseEntity.ok(product);
     }
 
     @GetMapping("/in-stock")
     @Operation(summary = "Get in-stock products", description = "Returns all products with stock > 0")
-    public ResponseEntity<List<Product>> getInStockProducts() {
-        return ResponseEntity.ok(productService.getProductsInStock());
+    public ResponseEntity<List<Product>> getInStockProducts(WebRequest request) {
+        if (isCatalogNotModified(request)) {
+            return null;
+        }
+        return ResponseEntity.ok(withVisibleStock(productService.getProductsInStock()));
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search products by name")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String name) {
-        return ResponseEntity.ok(productService.searchProducts(name));
+    @Operation(summary = "Search products",
+            description = "Ranked prefix search over name, category and description, served from memory")
+    public ResponseEntity<List<Product>> searchProducts(@RequestParam String name,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + ProductService.DEFAULT_SEARCH_PAGE_SIZE) int size) {
+        return ResponseEntity.ok(productService.searchProducts(name, page, size));
     }
 
     @PostMapping
@@ -52,6 +186,13 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    @Operation(summary = "Bulk create products",
+            description = "Streams a JSON array or NDJSON body into batched inserts. Failures are reported per row.")
+    public ResponseEntity<BulkIngestResult> bulkCreateProducts(InputStream body) {
+        return ResponseEntity.ok(bulkIngestService.ingest(body));
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update a product", description = "Updates an existing product and refreshes cache entry")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id,
@@ -67,14 +208,112 @@ public class ProductController {
     }
 
     @PatchMapping("/{id}/stock")
-    @Operation(summary = "Decrease product stock (used by order service)")
+    @Operation(summary = "Decrease product stock (used by order service)",
+            description = "Hot products are served from the in-memory inventory engine, others from the database")
     public ResponseEntity<Map<String, Object>> decreaseStock(@PathVariable Long id,
             @RequestParam int quantity) {
-        boolean success = productService.decreaseStock(id, quantity);
+        InventoryEngine.Reservation reservation = inventoryEngine.reserve(id, quantity);
+        boolean success = reservation == InventoryEngine.Reservation.NOT_MANAGED
+                ? productService.decreaseStock(id, quantity)
+                : reservation == InventoryEngine.Reservation.RESERVED;
         if (success) {
             return ResponseEntity.ok(Map.of("success", true, "message", "Stock updated"));
         }
         return ResponseEntity.status(HttpStatus.CONFLICT)
                 .body(Map.of("success", false, "message", "Insufficient stock"));
     }
+
+    @PostMapping("/reservations")
+    @Operation(summary = "Reserve stock for several products at once (used by order service)",
+            description = "Takes every line or none, and returns the unit prices the stock was taken at. "
+                    + "409 with the available stock per line when a line cannot be met. "
+                    + "A reservation repeated with the same reservationId returns the first result.")
+    public ResponseEntity<StockReservationResult> reserveStock(@Valid @RequestBody StockReservationRequest request) {
+        StockReservationResult result = reservationService.reserve(request.getReservationId(), request.getLines());
+        return ResponseEntity.status(result.isReserved() ? HttpStatus.OK : HttpStatus.CONFLICT).body(result);
+    }
+
+    @PostMapping("/reservations/release")
+    @Operation(summary = "Give back reserved stock",
+            description = "Returns the units of a reservation whose order could not be completed or was cancelled. "
+                    + "A release repeated with the same requestId is applied once. With a reservationId, "
+                    + "gives back what that reservation took, if anything, and refuses it if it arrives later.")
+    public ResponseEntity<Map<String, String>> releaseStock(@Valid @RequestBody StockReservationRequest request) {
+        boolean applied = reservationService.release(request.getRequestId(), request.getReservationId(),
+                request.getLines());
+        return ResponseEntity.ok(Map.of("message", applied ? "Reservation released" : "Reservation already released"));
+    }
+
+    @PostMapping("/{id}/hot")
+    @Operation(summary = "Serve a product's stock from memory",
+            description = "Designates a flash-sale SKU for the inventory engine on this pod")
+    public ResponseEntity<Map<String, String>> designateHotProduct(@PathVariable Long id) {
+        inventoryEngine.designate(id);
+        return ResponseEntity.ok(Map.of("message", "Product " + id + " is served from memory"));
+    }
+
+    @DeleteMapping("/{id}/hot")
+    @Operation(summary = "Return a product's stock to the database path",
+            description = "Returns the unsold in-memory lease to the database")
+    public ResponseEntity<Map<String, String>> releaseHotProduct(@PathVariable Long id) {
+        inventoryEngine.release(id);
+        return ResponseEntity.ok(Map.of("message", "Product " + id + " is served from the database"));
+    }
+
+    private ProductPage withVisibleStock(ProductPage page) {
+        List<Product> items = inventoryEngine.withVisibleStock(page.getItems());
+        return items == page.getItems() ? page : new ProductPage(items, page.getNextCursor());
+    }
+
+    /**
+     * Database in-stock list with this pod's hot products at their visible stock. A hot
+     * product whose row is down to zero is still in stock while its lease lasts.
+     */
+    private List<Product> withVisibleStock(List<Product> inStock) {
+        Set<Long> hot = inventoryEngine.hotProducts();
+        if (hot.isEmpty()) {
+            return inStock;
+        }
+        Map<Long, Product> merged = new TreeMap<>();
+        inStock.forEach(product -> merged.put(product.getId(), product));
+        for (Long productId : hot) {
+            Product product = merged.get(productId);
+            if (product == null) {
+                try {
+                    product = productService.getProductById(productId);
+                } catch (ProductNotFoundException e) {
+                    continue;
+                }
+            }
+            product = inventoryEngine.withVisibleStock(product);
+            if (product.getStockQuantity() > 0) {
+                merged.put(productId, product);
+            } else {
+                merged.remove(productId);
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * Answers conditional collection requests from the catalog version, plus the stock of
+     * products served from memory. Also sets the ETag / Last-Modified headers on the full
+     * response when the catalog has changed.
+     */
+    private boolean isCatalogNotModified(WebRequest request) {
+        CatalogVersion.Snapshot version = catalogVersion.current();
+        if (version == null) {
+            return false;
+        }
+        Set<Long> hot = inventoryEngine.hotProducts();
+        if (hot.isEmpty()) {
+            return request.checkNotModified(version.etag(), version.getModifiedAt());
+        }
+        // Sales from memory do not bump the catalog version; fold this pod's visible stock in
+        int stock = hot.stream().sorted()
+                .mapToInt(id -> inventoryEngine.visibleStock(id).orElse(0))
+                .reduce(17, (hash, units) -> 31 * hash + units);
+        String etag = version.etag();
+        return request.checkNotModified(etag.substring(0, etag.length() - 1) + "-s" + Integer.toHexString(stock) + "\"");
+    }
 }
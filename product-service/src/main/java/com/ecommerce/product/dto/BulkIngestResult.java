@@ -0,0 +1,27 @@
+package com.ecommerce.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkIngestResult {
+    private long received;
+    private long inserted;
+    private long failed;
+    private long elapsedMs;
+    private double rowsPerSecond;
+    private List<RowFailure> failures;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowFailure {
+        private long index;
+        private String error;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ecommerce.product.dto;
+
+import com.ecommerce.product.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One keyset page of the catalog. {@code nextCursor} is the last id on the page and
+ * is passed back as {@code cursor} to fetch the following page; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<Product> items;
+    private Long nextCursor;
+}
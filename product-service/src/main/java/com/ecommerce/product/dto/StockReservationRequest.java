@@ -0,0 +1,47 @@
+package com.ecommerce.product.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationRequest {
+
+    @NotEmpty(message = "At least one line is required")
+    @Valid
+    private List<Line> lines;
+
+    /** Idempotency key of a release; a release repeated with the same key is applied once. */
+    @Size(max = 64, message = "Request ID cannot exceed 64 characters")
+    private String requestId;
+
+    /** Client-generated id of a reservation; also names the reservation a release gives back. */
+    @Size(max = 64, message = "Reservation ID cannot exceed 64 characters")
+    private String reservationId;
+
+    public StockReservationRequest(List<Line> lines) {
+        this.lines = lines;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+
+        @NotNull(message = "Product ID is required")
+        private Long productId;
+
+        @NotNull(message = "Quantity is required")
+        @Min(value = 1, message = "Quantity must be at least 1")
+        private Integer quantity;
+    }
+}
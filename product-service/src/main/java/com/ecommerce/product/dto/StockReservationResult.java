@@ -0,0 +1,31 @@
+package com.ecommerce.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Outcome of a batch reservation. When {@code reserved} is false nothing was taken and
+ * {@code availableStock} on each line tells the caller which lines could not be met.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationResult {
+    private boolean reserved;
+    private List<Line> lines;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private String productName;
+        private BigDecimal unitPrice;
+        private int quantity;
+        private int availableStock;
+    }
+}
@@ -0,0 +1,70 @@
+package com.ecommerce.product.event;
+
+import com.ecommerce.product.model.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Fans committed product changes out to the other pods over Redis pub/sub, and replays
+ * their changes locally as remote {@link ProductChangedEvent}s so in-memory indexes stay
+ * in sync. Message format: {@code <origin>|<type>|<productId>}.
+ */
+@Component
+public class ProductChangeNotifier implements MessageListener {
+
+    public static final String CHANNEL = "products:changed";
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductChangeNotifier.class);
+
+    private final String origin = UUID.randomUUID().toString();
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Peers only need a stock change when it sells the product out or restocks it
+        if (event.isRemote() || (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED
+                && !event.crossedZero())) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, origin + "|" + event.getType() + "|" + event.getProductId());
+        } catch (Exception e) {
+            logger.warn("Failed to publish change for product {}: {}", event.getProductId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3 || origin.equals(parts[0])) {
+            return;
+        }
+        Long productId = Long.valueOf(parts[2]);
+        // Re-read rather than trust the message, so out-of-order notifications converge
+        Product product = productRepository.findById(productId).orElse(null);
+        ProductChangedEvent event = product != null
+                ? new ProductChangedEvent(ProductChangedEvent.Type.UPSERTED, productId, product,
+                        product.getStockQuantity(), null, true, product.getUpdatedAt())
+                : new ProductChangedEvent(ProductChangedEvent.Type.DELETED, productId, null, null, null, true, null);
+        eventPublisher.publishEvent(event);
+    }
+}
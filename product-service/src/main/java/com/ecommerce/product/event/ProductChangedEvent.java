@@ -0,0 +1,52 @@
+package com.ecommerce.product.event;
+
+import com.ecommerce.product.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published after a product is created, updated or deleted, or its stock is decremented.
+ * {@code remote} events were raised by another pod and replayed here from the
+ * {@code products:changed} channel. {@code updatedAt} is the row version the event
+ * reflects, so consumers can discard changes that arrive out of order. Stock changes
+ * carry the stock before the change, so consumers can tell sell-outs and restocks apart
+ * from ordinary decrements.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+    public enum Type {
+        UPSERTED, DELETED, STOCK_CHANGED
+    }
+
+    private final Type type;
+    private final Long productId;
+    private final Product product;
+    private final Integer stockQuantity;
+    private final Integer previousStock;
+    private final boolean remote;
+    private final LocalDateTime updatedAt;
+
+    public static ProductChangedEvent upserted(Product product) {
+        return new ProductChangedEvent(Type.UPSERTED, product.getId(), product, product.getStockQuantity(), null, false,
+                product.getUpdatedAt());
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(Type.DELETED, productId, null, null, null, false, null);
+    }
+
+    public static ProductChangedEvent stockChanged(Long productId, int previousStock, int stockQuantity,
+                                                   LocalDateTime updatedAt) {
+        return new ProductChangedEvent(Type.STOCK_CHANGED, productId, null, stockQuantity, previousStock, false,
+                updatedAt);
+    }
+
+    /** True when the product sold out or came back into stock; unknown previous stock counts as a crossing. */
+    public boolean crossedZero() {
+        return stockQuantity == null || previousStock == null || (previousStock == 0) != (stockQuantity == 0);
+    }
+}
@@ -0,0 +1,538 @@
+package com.ecommerce.product.inventory;
+
+import com.ecommerce.product.event.ProductChangedEvent;
+import com.ecommerce.product.exception.ProductNotFoundException;
+import com.ecommerce.product.model.Product;
+import com.ecommerce.product.service.ProductService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory stock for designated hot products, so flash-sale orders stop queueing on
+ * one Postgres row lock.
+ *
+ * <p>Each pod leases stock from the database in chunks (one batched UPDATE for every SKU
+ * that needs topping up) and sells from its lease with a CAS on an {@link AtomicInteger}.
+ * Leasing takes units out of {@code products.stock_quantity} up front, so pods can never
+ * oversell each other; the database shows stock minus what is currently leased. Every
+ * lease, sale and return is fsynced to the {@link InventoryJournal} before it takes
+ * effect: leases and returns are journalled inside their database transaction, before
+ * it commits, tagged with its transaction id. At startup any lease left unsold by a
+ * crash is returned to the database, skipping leases whose transaction never committed.
+ */
+@Component
+public class InventoryEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryEngine.class);
+
+    // Takes up to the requested units per product, locking rows in id order to avoid deadlocks
+    private static final String LEASE_SQL = "WITH req AS (SELECT * FROM unnest(?::bigint[], ?::int[]) AS r(id, units)), "
+            + "locked AS (SELECT p.id, p.stock_quantity, req.units FROM products p JOIN req ON req.id = p.id "
+            + "ORDER BY p.id FOR UPDATE OF p) "
+            + "UPDATE products p SET stock_quantity = p.stock_quantity - LEAST(locked.stock_quantity, locked.units), "
+            + "updated_at = ? FROM locked WHERE p.id = locked.id "
+            + "RETURNING p.id, LEAST(locked.stock_quantity, locked.units) AS taken, p.stock_quantity AS remaining";
+    private static final String RETURN_SQL = "UPDATE products p SET stock_quantity = p.stock_quantity + r.units, "
+            + "updated_at = ? FROM unnest(?::bigint[], ?::int[]) AS r(id, units) WHERE p.id = r.id "
+            + "RETURNING p.id, p.stock_quantity";
+    private static final String XID_SQL = "SELECT pg_current_xact_id()::text";
+    private static final String XID_STATUS_SQL = "SELECT pg_xact_status(?::xid8)";
+
+    public enum Reservation {
+        RESERVED,
+        INSUFFICIENT_STOCK,
+        /** Not a hot product on this pod; use the database path. */
+        NOT_MANAGED
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${product.inventory.engine.enabled:false}")
+    private boolean enabled;
+
+    @Value("${product.inventory.journal-path:data/inventory.journal}")
+    private Path journalPath;
+
+    @Value("${product.inventory.hot-product-ids:}")
+    private Set<Long> hotProductIds;
+
+    @Value("${product.inventory.lease-size:100}")
+    private int leaseSize;
+
+    @Value("${product.inventory.low-water:25}")
+    private int lowWater;
+
+    @Value("${product.inventory.journal-checkpoint-bytes:16777216}")
+    private long checkpointBytes;
+
+    private final ConcurrentMap<Long, HotSku> skus = new ConcurrentHashMap<>();
+    // Serializes lease changes; reservations themselves never take it while the lease lasts
+    private final ReentrantLock leaseLock = new ReentrantLock();
+    private InventoryJournal journal;
+    private TransactionTemplate transactionTemplate;
+    private volatile boolean active;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // Own transaction even when called from one, so a lease is never credited before it commits
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            journal = new InventoryJournal(journalPath);
+            Map<String, String> statuses = new HashMap<>();
+            Map<Long, Integer> unsold = journal.unsoldLeases(
+                    xid -> statuses.computeIfAbsent(xid, this::transactionStatus));
+            if (!unsold.isEmpty()) {
+                logger.warn("Returning {} unsold leases left by an unclean shutdown: {}", unsold.size(), unsold);
+                returnToDatabase(unsold);
+            }
+            journal.checkpoint(Map.of()).join();
+            active = true;
+        } catch (Exception e) {
+            // The journal is kept, so the next start retries the recovery
+            logger.error("Inventory engine disabled, journal recovery failed: {}", e.getMessage(), e);
+            return;
+        }
+        for (Long productId : hotProductIds) {
+            try {
+                designate(productId);
+            } catch (RuntimeException e) {
+                logger.warn("Could not designate hot product {}: {}", productId, e.getMessage());
+            }
+        }
+        logger.info("Inventory engine started with {} hot products", skus.size());
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Serves {@code productId} from memory from now on, leasing its first chunk of stock.
+     */
+    public void designate(Long productId) {
+        requireActive();
+        leaseLock.lock();
+        try {
+            if (skus.containsKey(productId)) {
+                return;
+            }
+            skus.put(productId, new HotSku());
+            if (!leaseFromDatabase(Map.of(productId, leaseSize)).containsKey(productId)) {
+                skus.remove(productId);
+                throw new ProductNotFoundException("Product not found with id: " + productId);
+            }
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    /** Hands the product back to the database path, returning its unsold lease. */
+    public void release(Long productId) {
+        requireActive();
+        leaseLock.lock();
+        try {
+            HotSku sku = skus.remove(productId);
+            if (sku == null) {
+                return;
+            }
+            sku.retired = true;
+            int unsold = sku.available.getAndSet(0);
+            if (unsold > 0) {
+                returnToDatabase(Map.of(productId, unsold));
+            }
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    public Reservation reserve(Long productId, int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1");
+        }
+        HotSku sku = active ? skus.get(productId) : null;
+        if (sku == null) {
+            return Reservation.NOT_MANAGED;
+        }
+        if (!sku.take(quantity)) {
+            Reservation refill = leaseFor(productId, sku, quantity);
+            if (refill != Reservation.RESERVED) {
+                return refill;
+            }
+        }
+        try {
+            journal.append(InventoryJournal.SALE, productId, quantity).join();
+        } catch (RuntimeException e) {
+            // Not durable, so not sold: put the units back before failing the request. A SKU
+            // retired meanwhile has already returned its lease; the database stays the truth
+            leaseLock.lock();
+            try {
+                if (!sku.retired) {
+                    sku.available.addAndGet(quantity);
+                }
+            } finally {
+                leaseLock.unlock();
+            }
+            throw new IllegalStateException("Could not record reservation for product " + productId, e);
+        }
+        if (sku.available.get() == 0 && sku.databaseStock == 0) {
+            stockMoved(productId, quantity, 0, LocalDateTime.now());
+        }
+        return Reservation.RESERVED;
+    }
+
+    /** Database stock plus this pod's unsold lease, or empty when the product is not served from memory. */
+    public Optional<Integer> visibleStock(Long productId) {
+        HotSku sku = active ? skus.get(productId) : null;
+        if (sku == null || sku.databaseStock == Integer.MAX_VALUE) {
+            // Not managed, or the first lease of a new designation has not landed yet
+            return Optional.empty();
+        }
+        long visible = (long) sku.databaseStock + sku.available.get();
+        return Optional.of((int) Math.min(Integer.MAX_VALUE, visible));
+    }
+
+    /**
+     * A copy of {@code product} showing its visible stock, or {@code product} itself when
+     * it is not served from memory. Cached products hold database stock, which excludes
+     * leased units, and are shared, so they are never modified in place.
+     */
+    public Product withVisibleStock(Product product) {
+        return visibleStock(product.getId())
+                .map(stock -> product.toBuilder().stockQuantity(stock).build())
+                .orElse(product);
+    }
+
+    public List<Product> withVisibleStock(List<Product> products) {
+        if (!active || skus.isEmpty()) {
+            return products;
+        }
+        return products.stream().map(this::withVisibleStock).toList();
+    }
+
+    /** Products served from memory on this pod. */
+    public Set<Long> hotProducts() {
+        return active ? Set.copyOf(skus.keySet()) : Set.of();
+    }
+
+    /**
+     * Puts units of a cancelled reservation back into the lease. Returns false when the
+     * product is not served from memory, so the caller restores them in the database.
+     * Memory is credited before the journal: a crash in between under-counts the lease,
+     * which under-returns stock at recovery rather than overselling it.
+     */
+    public boolean cancel(Long productId, int quantity) {
+        boolean restocked;
+        // Under the lease lock so a concurrent release cannot strand the units in a retired SKU
+        leaseLock.lock();
+        try {
+            HotSku sku = active ? skus.get(productId) : null;
+            if (sku == null || sku.retired) {
+                return false;
+            }
+            restocked = sku.available.getAndAdd(quantity) == 0 && sku.databaseStock == 0;
+        } finally {
+            leaseLock.unlock();
+        }
+        try {
+            journal.append(InventoryJournal.CANCEL, productId, quantity).join();
+        } catch (RuntimeException e) {
+            logger.warn("Could not journal cancelled reservation of product {}: {}", productId, e.getMessage());
+        }
+        if (restocked) {
+            stockMoved(productId, 0, quantity, LocalDateTime.now());
+        }
+        return true;
+    }
+
+    /**
+     * Tops up every hot product that fell below the low-water mark with one batched lease,
+     * keeping database round trips off the reservation path.
+     */
+    @Scheduled(fixedDelayString = "${product.inventory.top-up-interval:PT0.1S}")
+    public void topUp() {
+        if (!active) {
+            return;
+        }
+        checkpointIfLarge();
+        Map<Long, Integer> requests = new HashMap<>();
+        skus.forEach((productId, sku) -> {
+            if (sku.available.get() < lowWater && sku.databaseStock > 0) {
+                requests.put(productId, leaseSize);
+            }
+        });
+        if (requests.isEmpty()) {
+            return;
+        }
+        leaseLock.lock();
+        try {
+            leaseFromDatabase(requests);
+        } catch (RuntimeException e) {
+            logger.warn("Inventory top-up failed: {}", e.getMessage());
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    /** An admin stock edit goes straight to the row; let a sold-out SKU lease again. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        HotSku sku = skus.get(event.getProductId());
+        if (sku != null && event.getType() == ProductChangedEvent.Type.UPSERTED
+                && event.getProduct().getStockQuantity() != null) {
+            sku.databaseStock = event.getProduct().getStockQuantity();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (!active) {
+            return;
+        }
+        active = false;
+        leaseLock.lock();
+        try {
+            Map<Long, Integer> unsold = new HashMap<>();
+            skus.forEach((productId, sku) -> {
+                sku.retired = true;
+                int units = sku.available.getAndSet(0);
+                if (units > 0) {
+                    unsold.put(productId, units);
+                }
+            });
+            skus.clear();
+            if (!unsold.isEmpty()) {
+                returnToDatabase(unsold);
+            }
+            journal.checkpoint(Map.of()).join();
+        } catch (RuntimeException e) {
+            // The journal still holds the leases; the next start returns them
+            logger.error("Could not return inventory leases on shutdown: {}", e.getMessage());
+        } finally {
+            leaseLock.unlock();
+            journal.close();
+        }
+    }
+
+    /** Replaces the journal with the outstanding leases once it grows past the threshold. */
+    private void checkpointIfLarge() {
+        try {
+            if (journal.size() < checkpointBytes) {
+                return;
+            }
+            leaseLock.lock();
+            try {
+                Map<Long, Integer> outstanding = new HashMap<>();
+                skus.forEach((productId, sku) -> outstanding.put(productId, sku.available.get()));
+                journal.checkpoint(outstanding).join();
+            } finally {
+                leaseLock.unlock();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Inventory journal checkpoint failed: {}", e.getMessage());
+        }
+    }
+
+    /** Synchronous refill when a reservation outruns the background top-up. */
+    private Reservation leaseFor(Long productId, HotSku sku, int quantity) {
+        leaseLock.lock();
+        try {
+            while (!sku.take(quantity)) {
+                if (sku.retired) {
+                    return Reservation.NOT_MANAGED;
+                }
+                if (sku.databaseStock == 0) {
+                    return Reservation.INSUFFICIENT_STOCK;
+                }
+                int needed = Math.max(leaseSize, quantity - sku.available.get());
+                int[] leased = leaseFromDatabase(Map.of(productId, needed)).get(productId);
+                if (leased == null || leased[0] == 0) {
+                    return Reservation.INSUFFICIENT_STOCK;
+                }
+            }
+            return Reservation.RESERVED;
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    /**
+     * Returns {@code [taken, remaining]} per product found. Caller holds the lease lock.
+     * The lease records are fsynced before the UPDATE commits; if they cannot be, the
+     * transaction rolls back and the units never leave the database. Memory is only
+     * credited after the commit.
+     */
+    private Map<Long, int[]> leaseFromDatabase(Map<Long, Integer> requests) {
+        Map<Long, int[]> leased = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            String xid = jdbcTemplate.queryForObject(XID_SQL, String.class);
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(LEASE_SQL);
+                ps.setArray(1, con.createArrayOf("bigint", requests.keySet().toArray(new Long[0])));
+                ps.setArray(2, con.createArrayOf("integer", requests.values().toArray(new Integer[0])));
+                ps.setTimestamp(3, Timestamp.valueOf(now));
+                return ps;
+            }, (RowCallbackHandler) rs -> leased.put(rs.getLong("id"),
+                    new int[] {rs.getInt("taken"), rs.getInt("remaining")}));
+
+            List<CompletableFuture<Void>> records = new ArrayList<>();
+            leased.forEach((productId, result) -> {
+                if (result[0] > 0) {
+                    records.add(journal.append(InventoryJournal.LEASE, productId, result[0], xid));
+                }
+            });
+            try {
+                CompletableFuture.allOf(records.toArray(new CompletableFuture[0])).join();
+            } catch (RuntimeException e) {
+                // Units we cannot account for durably must not leave the database
+                throw new IllegalStateException("Could not record inventory lease", e);
+            }
+        });
+        // A commit that failed after reaching the server leaves the lease journalled as
+        // committed; recovery returns it at the next start
+
+        leased.forEach((productId, result) -> {
+            HotSku sku = skus.get(productId);
+            if (sku == null) {
+                return;
+            }
+            sku.databaseStock = result[1];
+            if (result[0] > 0) {
+                sku.available.addAndGet(result[0]);
+                // Moving units into the lease leaves the visible stock where it was
+                int visible = result[1] + sku.available.get();
+                stockMoved(productId, visible, visible, now);
+            }
+        });
+        return leased;
+    }
+
+    /**
+     * Journals the returns inside the UPDATE's transaction, before it commits. A crash
+     * before the commit leaves records whose transaction aborted, which recovery ignores;
+     * one after it leaves records that cancel the leases, so nothing is returned twice.
+     */
+    private void returnToDatabase(Map<Long, Integer> units) {
+        Map<Long, Integer> stock = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            String xid = jdbcTemplate.queryForObject(XID_SQL, String.class);
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(RETURN_SQL);
+                ps.setTimestamp(1, Timestamp.valueOf(now));
+                ps.setArray(2, con.createArrayOf("bigint", units.keySet().toArray(new Long[0])));
+                ps.setArray(3, con.createArrayOf("integer", units.values().toArray(new Integer[0])));
+                return ps;
+            }, (RowCallbackHandler) rs -> stock.put(rs.getLong("id"), rs.getInt("stock_quantity")));
+            if (journal != null) {
+                List<CompletableFuture<Void>> records = new ArrayList<>();
+                units.forEach((productId, count) ->
+                        records.add(journal.append(InventoryJournal.RETURN, productId, count, xid)));
+                CompletableFuture.allOf(records.toArray(new CompletableFuture[0])).join();
+            }
+        });
+        stock.forEach((productId, quantity) ->
+                stockMoved(productId, quantity - units.get(productId), quantity, now));
+    }
+
+    /** Null when the database no longer knows the transaction; callers treat that as unknown. */
+    private String transactionStatus(String xid) {
+        try {
+            return jdbcTemplate.queryForObject(XID_STATUS_SQL, String.class, xid);
+        } catch (RuntimeException e) {
+            logger.warn("Could not look up status of transaction {}: {}", xid, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The database row changed outside JPA: drop cached copies and tell the indexes and
+     * the in-stock list. Both stocks include this pod's unsold lease.
+     */
+    private void stockMoved(Long productId, int previousStock, int visibleStock, LocalDateTime updatedAt) {
+        Cache products = cacheManager.getCache(ProductService.CACHE_NAME);
+        if (products != null) {
+            products.evict(productId);
+        }
+        ProductChangedEvent event = ProductChangedEvent.stockChanged(productId, previousStock, visibleStock, updatedAt);
+        if (event.crossedZero()) {
+            Cache pages = cacheManager.getCache(ProductService.PAGE_CACHE_NAME);
+            if (pages != null) {
+                pages.clear();
+            }
+        }
+        eventPublisher.publishEvent(event);
+    }
+
+    private void requireActive() {
+        if (!active) {
+            throw new IllegalArgumentException("Inventory engine is not enabled");
+        }
+    }
+
+    private static final class HotSku {
+        private final AtomicInteger available = new AtomicInteger();
+        // Stock left in the database after our last lease; 0 means no top-up can help
+        private volatile int databaseStock = Integer.MAX_VALUE;
+        private volatile boolean retired;
+
+        private boolean take(int quantity) {
+            while (true) {
+                int current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+                if (available.compareAndSet(current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
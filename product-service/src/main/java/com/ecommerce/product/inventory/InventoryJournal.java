@@ -0,0 +1,240 @@
+package com.ecommerce.product.inventory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Append-only, fsynced log of stock leased from the database, units sold from leases,
+ * sales cancelled back into the lease and units returned. One line per record:
+ * {@code L|id|units}, {@code S|id|units}, {@code C|id|units} or {@code R|id|units}.
+ * A single writer thread group-commits whatever is queued with one {@code force}, so
+ * concurrent reservations share the fsync cost.
+ *
+ * <p>Leases and returns move stock in the database, so they are written inside the
+ * database transaction, before it commits, with its transaction id appended
+ * ({@code L|id|units|xid}). On replay a lease only counts if its transaction committed,
+ * and a return counts unless its transaction aborted. A crash on either side of the
+ * commit therefore never returns stock that was not leased.
+ *
+ * <p>A checkpoint replaces the file with one lease record per outstanding lease. It is
+ * ordered with the appends by the writer thread: a sale queued after the checkpoint but
+ * taken before its snapshot is subtracted twice on replay, which under-returns stock
+ * rather than overselling it.
+ */
+class InventoryJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryJournal.class);
+    private static final int MAX_GROUP = 1024;
+
+    static final char LEASE = 'L';
+    static final char SALE = 'S';
+    static final char CANCEL = 'C';
+    static final char RETURN = 'R';
+
+    private final Path path;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private FileChannel channel;
+    private volatile boolean closed;
+
+    InventoryJournal(Path path) throws IOException {
+        this.path = path;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = open(path);
+        this.writer = new Thread(this::writeLoop, "inventory-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Completes once the record is durable on disk. */
+    CompletableFuture<Void> append(char type, long productId, int units) {
+        return enqueue(new Pending(record(type, productId, units), false));
+    }
+
+    /** Like {@link #append(char, long, int)}, for a record of database transaction {@code xid}. */
+    CompletableFuture<Void> append(char type, long productId, int units, String xid) {
+        return enqueue(new Pending(type + "|" + productId + "|" + units + "|" + xid + "\n", false));
+    }
+
+    /** Atomically replaces the journal with the given outstanding leases. */
+    CompletableFuture<Void> checkpoint(Map<Long, Integer> outstanding) {
+        StringBuilder records = new StringBuilder();
+        outstanding.forEach((productId, units) -> {
+            if (units > 0) {
+                records.append(record(LEASE, productId, units));
+            }
+        });
+        return enqueue(new Pending(records.toString(), true));
+    }
+
+    long size() throws IOException {
+        return Files.size(path);
+    }
+
+    /**
+     * Units leased but neither sold nor returned, per product, according to the journal.
+     * {@code transactionStatus} maps a transaction id to its status in the database
+     * ({@code committed}, {@code aborted}, {@code in progress}, or null when unknown).
+     */
+    Map<Long, Integer> unsoldLeases(Function<String, String> transactionStatus) throws IOException {
+        Map<Long, Integer> unsold = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\\|");
+                if (parts.length != 3 && parts.length != 4) {
+                    // Torn final write from a crash; it was never acknowledged
+                    logger.warn("Skipping malformed inventory journal record: {}", line);
+                    continue;
+                }
+                int units = Integer.parseInt(parts[2]);
+                char type = parts[0].charAt(0);
+                if (parts.length == 4) {
+                    String status = transactionStatus.apply(parts[3]);
+                    // Either way an unknown outcome under-returns, it never returns unleased stock
+                    boolean applied = type == LEASE ? "committed".equals(status) : !"aborted".equals(status);
+                    if (!applied) {
+                        continue;
+                    }
+                }
+                int delta = type == LEASE || type == CANCEL ? units : -units;
+                unsold.merge(Long.parseLong(parts[1]), delta, Integer::sum);
+            }
+        }
+        unsold.values().removeIf(units -> units <= 0);
+        return unsold;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        // No interrupt: it would close the channel under an in-progress force
+        queue.add(Pending.SHUTDOWN);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        queue.forEach(pending -> pending.done.completeExceptionally(
+                new IllegalStateException("Inventory journal is closed")));
+        channel.close();
+    }
+
+    private CompletableFuture<Void> enqueue(Pending pending) {
+        if (closed) {
+            pending.done.completeExceptionally(new IllegalStateException("Inventory journal is closed"));
+        } else {
+            queue.add(pending);
+        }
+        return pending.done;
+    }
+
+    private void writeLoop() {
+        List<Pending> group = new ArrayList<>(MAX_GROUP);
+        boolean running = true;
+        while (running) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(group, MAX_GROUP - group.size());
+            running = !group.remove(Pending.SHUTDOWN);
+            int from = 0;
+            for (int i = 0; i < group.size(); i++) {
+                if (group.get(i).checkpoint) {
+                    writeGroup(group.subList(from, i));
+                    rotate(group.get(i));
+                    from = i + 1;
+                }
+            }
+            writeGroup(group.subList(from, group.size()));
+            group.clear();
+        }
+    }
+
+    private void writeGroup(List<Pending> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            StringBuilder content = new StringBuilder(records.size() * 24);
+            records.forEach(pending -> content.append(pending.records));
+            write(channel, content.toString());
+            channel.force(false);
+            records.forEach(pending -> pending.done.complete(null));
+        } catch (IOException e) {
+            UncheckedIOException failure = new UncheckedIOException("Inventory journal write failed", e);
+            records.forEach(pending -> pending.done.completeExceptionally(failure));
+        }
+    }
+
+    /** Writes the checkpoint beside the journal, then renames it over the old one. */
+    private void rotate(Pending checkpoint) {
+        Path next = path.resolveSibling(path.getFileName() + ".next");
+        try {
+            try (FileChannel out = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                write(out, checkpoint.records);
+                out.force(true);
+            }
+            Files.move(next, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = open(path);
+            checkpoint.done.complete(null);
+        } catch (IOException e) {
+            checkpoint.done.completeExceptionally(new UncheckedIOException("Inventory journal checkpoint failed", e));
+        }
+    }
+
+    private static void write(FileChannel target, String records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static String record(char type, long productId, int units) {
+        return type + "|" + productId + "|" + units + "\n";
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private static final class Pending {
+        private static final Pending SHUTDOWN = new Pending("", false);
+
+        private final String records;
+        private final boolean checkpoint;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Pending(String records, boolean checkpoint) {
+            this.records = records;
+            this.checkpoint = checkpoint;
+        }
+    }
+}
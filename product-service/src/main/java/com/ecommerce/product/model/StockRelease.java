@@ -0,0 +1,27 @@
+package com.ecommerce.product.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency key of an applied stock release. Inserted in the same transaction as the
+ * restored stock, so a release retried by order-service is applied once.
+ */
+@Entity
+@Table(name = "stock_releases", indexes = @Index(name = "idx_stock_releases_released_at", columnList = "released_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockRelease {
+
+    @Id
+    @Column(name = "request_id", length = 64)
+    private String requestId;
+
+    @Column(name = "released_at", nullable = false)
+    private LocalDateTime releasedAt;
+}
@@ -0,0 +1,41 @@
+package com.ecommerce.product.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of a reservation made under a client-generated id, inserted in the same
+ * transaction that takes the stock. A retried reservation returns the recorded result
+ * instead of taking the stock again, and a release by reservation id gives back exactly
+ * what was taken. A release that arrives first leaves a released row with no stock, so
+ * the late reservation is refused.
+ */
+@Entity
+@Table(name = "stock_reservations",
+        indexes = @Index(name = "idx_stock_reservations_created_at", columnList = "created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+
+    @Id
+    @Column(name = "reservation_id", length = 64)
+    private String reservationId;
+
+    @Column(nullable = false)
+    private boolean reserved;
+
+    @Column(nullable = false)
+    private boolean released;
+
+    /** The StockReservationResult returned to the caller, as JSON. */
+    @Column(nullable = false, columnDefinition = "text")
+    private String result;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
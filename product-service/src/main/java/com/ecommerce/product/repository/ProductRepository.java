@@ -1,19 +1,50 @@
 package com.ecommerce.product.repository;
 
 import com.ecommerce.product.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+    String EXPORT_FETCH_SIZE = "1000";
+
     List<Product> findByNameContainingIgnoreCase(String name);
 
-    @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0")
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    List<Product> findByCategoryIgnoreCaseAndIdGreaterThanOrderByIdAsc(String category, Long id, Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0 ORDER BY p.id")
     List<Product> findAllInStock();
 
+    /** Cursor over every product; must be consumed inside a transaction and closed. */
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    Stream<Product> streamAllByOrderById();
+
     boolean existsByName(String name);
+
+    /**
+     * Conditionally decrements stock in a single statement. Returns the remaining stock,
+     * or null when the product does not exist or has fewer than {@code quantity} units.
+     */
+    @Query(value = "UPDATE products SET stock_quantity = stock_quantity - :quantity, updated_at = :updatedAt "
+            + "WHERE id = :id AND stock_quantity >= :quantity RETURNING stock_quantity", nativeQuery = true)
+    Integer decrementStock(@Param("id") Long id, @Param("quantity") int quantity,
+            @Param("updatedAt") LocalDateTime updatedAt);
 }
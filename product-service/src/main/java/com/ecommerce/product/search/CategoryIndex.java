@@ -0,0 +1,153 @@
+package com.ecommerce.product.search;
+
+import com.ecommerce.product.dto.CategoryFacet;
+import com.ecommerce.product.event.ProductChangedEvent;
+import com.ecommerce.product.model.Product;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-category product id lists with precomputed product and in-stock counts.
+ * Posting weights double as the in-stock flag (1 in stock, 0 sold out), so a stock change
+ * only flips a weight and adjusts one counter.
+ */
+@Component
+public class CategoryIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Bucket> buckets = new HashMap<>();
+    private final Map<Long, String> categoryByProduct = new HashMap<>();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    void markReady() {
+        ready = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case UPSERTED -> index(event.getProduct());
+            case DELETED -> remove(event.getProductId());
+            case STOCK_CHANGED -> updateStock(event.getProductId(), event.getStockQuantity());
+        }
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(product.getId());
+            String key = key(product.getCategory());
+            Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(product.getCategory()));
+            boolean inStock = product.getStockQuantity() != null && product.getStockQuantity() > 0;
+            bucket.products.put(product.getId(), inStock ? 1 : 0);
+            if (inStock) {
+                bucket.inStock++;
+            }
+            categoryByProduct.put(product.getId(), key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<CategoryFacet> facets() {
+        lock.readLock().lock();
+        try {
+            List<CategoryFacet> facets = new ArrayList<>(buckets.size());
+            for (Bucket bucket : buckets.values()) {
+                facets.add(new CategoryFacet(bucket.displayName, bucket.products.size(), bucket.inStock));
+            }
+            facets.sort(Comparator.comparing(CategoryFacet::getCategory, String.CASE_INSENSITIVE_ORDER));
+            return facets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Up to {@code limit} ids in {@code category} greater than {@code afterId}, ascending. */
+    public long[] idsAfter(String category, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            Bucket bucket = buckets.get(key(category));
+            if (bucket == null) {
+                return new long[0];
+            }
+            int from = bucket.products.indexAfter(afterId);
+            int to = Math.min(from + limit, bucket.products.size());
+            long[] ids = new long[Math.max(0, to - from)];
+            for (int i = from; i < to; i++) {
+                ids[i - from] = bucket.products.idAt(i);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void updateStock(Long productId, int stockQuantity) {
+        lock.writeLock().lock();
+        try {
+            String key = categoryByProduct.get(productId);
+            if (key == null) {
+                return;
+            }
+            Bucket bucket = buckets.get(key);
+            int wasInStock = bucket.products.weightOf(productId);
+            int inStock = stockQuantity > 0 ? 1 : 0;
+            if (wasInStock != inStock) {
+                bucket.products.put(productId, inStock);
+                bucket.inStock += inStock - wasInStock;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeInternal(Long productId) {
+        String key = categoryByProduct.remove(productId);
+        if (key == null) {
+            return;
+        }
+        Bucket bucket = buckets.get(key);
+        bucket.inStock -= Math.max(0, bucket.products.weightOf(productId));
+        bucket.products.remove(productId);
+        if (bucket.products.size() == 0) {
+            buckets.remove(key);
+        }
+    }
+
+    private static String key(String category) {
+        return category == null ? "" : category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Bucket {
+
+        private final String displayName;
+        private final PostingList products = new PostingList();
+        private int inStock;
+
+        private Bucket(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.ecommerce.product.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted product ids for one term with a per-document weight, held in parallel
+ * primitive arrays so a posting costs 10 bytes instead of a boxed map entry.
+ * Not thread-safe; guarded by the index lock.
+ */
+final class PostingList {
+
+    private long[] ids = new long[4];
+    private short[] weights = new short[4];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    long idAt(int index) {
+        return ids[index];
+    }
+
+    int weightAt(int index) {
+        return weights[index];
+    }
+
+    /** Weight of {@code id}, or -1 if it is not in the list. */
+    int weightOf(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        return index >= 0 ? weights[index] : -1;
+    }
+
+    /** Position of the first id strictly greater than {@code id}. */
+    int indexAfter(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    void put(long id, int weight) {
+        short clamped = (short) Math.min(weight, Short.MAX_VALUE);
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            weights[index] = clamped;
+            return;
+        }
+        int insertAt = -index - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        System.arraycopy(weights, insertAt, weights, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        weights[insertAt] = clamped;
+        size++;
+    }
+
+    void remove(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+        size--;
+    }
+}
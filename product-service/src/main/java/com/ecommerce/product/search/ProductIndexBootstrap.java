@@ -0,0 +1,54 @@
+package com.ecommerce.product.search;
+
+import com.ecommerce.product.model.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Loads the in-memory product indexes in one keyset pass over the table before the
+ * application reports ready.
+ */
+@Component
+public class ProductIndexBootstrap implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductIndexBootstrap.class);
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private CategoryIndex categoryIndex;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        long cursor = 0;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByIdGreaterThanOrderByIdAsc(cursor, Limit.of(BATCH_SIZE));
+            for (Product product : batch) {
+                searchIndex.index(product);
+                categoryIndex.index(product);
+            }
+            if (!batch.isEmpty()) {
+                cursor = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == BATCH_SIZE);
+        searchIndex.markReady();
+        categoryIndex.markReady();
+        logger.info("Product indexes built: {} products in {} ms",
+                searchIndex.size(), System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,258 @@
+package com.ecommerce.product.search;
+
+import com.ecommerce.product.event.ProductChangedEvent;
+import com.ecommerce.product.model.Product;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name, category and description.
+ * Built once at startup by {@link ProductIndexBootstrap}, then kept current from {@link ProductChangedEvent}s (local
+ * commits and changes replayed from other pods). Every query token is matched as a
+ * prefix so results are useful while the user is still typing; all tokens must match.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_TERM_BOOST = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, PostingList> terms = new TreeMap<>();
+    private final Map<Long, Product> documents = new HashMap<>();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    void markReady() {
+        ready = true;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case UPSERTED -> index(event.getProduct());
+            case DELETED -> remove(event.getProductId());
+            case STOCK_CHANGED -> updateStock(event.getProductId(), event.getStockQuantity());
+        }
+    }
+
+    public void index(Product product) {
+        Map<String, Integer> weights = new HashMap<>();
+        addTerms(weights, product.getName(), NAME_WEIGHT);
+        addTerms(weights, product.getCategory(), CATEGORY_WEIGHT);
+        addTerms(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(product.getId());
+            documents.put(product.getId(), product);
+            weights.forEach((term, weight) ->
+                    terms.computeIfAbsent(term, t -> new PostingList()).put(product.getId(), weight));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stock is not searchable, but keep the stored document current for search results.
+     * Documents are shared with the cache and with earlier results, so they are replaced,
+     * never modified.
+     */
+    private void updateStock(Long productId, int stockQuantity) {
+        lock.writeLock().lock();
+        try {
+            Product document = documents.get(productId);
+            if (document != null) {
+                documents.put(productId, document.toBuilder().stockQuantity(stockQuantity).build());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns one page of matching products, best match first (ties broken by id).
+     */
+    public List<Product> search(String query, int page, int size) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Hits hits = null;
+            for (String token : tokens) {
+                Hits tokenHits = matchPrefix(token);
+                hits = hits == null ? tokenHits : hits.intersect(tokenHits);
+                if (hits.size == 0) {
+                    return List.of();
+                }
+            }
+            return hits.page(page, size, documents);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Hits matchPrefix(String token) {
+        NavigableMap<String, PostingList> matches = terms.subMap(token, true, token + Character.MAX_VALUE, false);
+        Hits hits = new Hits(0);
+        int expansions = 0;
+        for (Map.Entry<String, PostingList> entry : matches.entrySet()) {
+            if (expansions++ == MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            int boost = entry.getKey().equals(token) ? EXACT_TERM_BOOST : 1;
+            hits = hits.union(entry.getValue(), boost);
+        }
+        return hits;
+    }
+
+    private void removeInternal(Long productId) {
+        Product previous = documents.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        Map<String, Integer> previousTerms = new HashMap<>();
+        addTerms(previousTerms, previous.getName(), NAME_WEIGHT);
+        addTerms(previousTerms, previous.getCategory(), CATEGORY_WEIGHT);
+        addTerms(previousTerms, previous.getDescription(), DESCRIPTION_WEIGHT);
+        for (String term : previousTerms.keySet()) {
+            PostingList postings = terms.get(term);
+            if (postings != null) {
+                postings.remove(productId);
+                if (postings.size() == 0) {
+                    terms.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void addTerms(Map<String, Integer> weights, String text, int weight) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Integer::sum);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Scored result set kept sorted by id, so union and intersection are linear merges.
+     */
+    private static final class Hits {
+
+        private final long[] ids;
+        private final int[] scores;
+        private int size;
+
+        private Hits(int capacity) {
+            ids = new long[capacity];
+            scores = new int[capacity];
+        }
+
+        private void add(long id, int score) {
+            ids[size] = id;
+            scores[size] = score;
+            size++;
+        }
+
+        private Hits union(PostingList postings, int boost) {
+            Hits result = new Hits(size + postings.size());
+            int i = 0;
+            int j = 0;
+            while (i < size || j < postings.size()) {
+                if (j == postings.size() || (i < size && ids[i] < postings.idAt(j))) {
+                    result.add(ids[i], scores[i]);
+                    i++;
+                } else if (i == size || postings.idAt(j) < ids[i]) {
+                    result.add(postings.idAt(j), postings.weightAt(j) * boost);
+                    j++;
+                } else {
+                    result.add(ids[i], scores[i] + postings.weightAt(j) * boost);
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        private Hits intersect(Hits other) {
+            Hits result = new Hits(Math.min(size, other.size));
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (ids[i] < other.ids[j]) {
+                    i++;
+                } else if (other.ids[j] < ids[i]) {
+                    j++;
+                } else {
+                    result.add(ids[i], scores[i] + other.scores[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        private List<Product> page(int page, int pageSize, Map<Long, Product> documents) {
+            // Sort key: inverted score in the high bits, id-ordered position in the low bits
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) (Integer.MAX_VALUE - scores[i]) << 32) | i;
+            }
+            Arrays.sort(order);
+            int from = (int) Math.min((long) page * pageSize, size);
+            int to = Math.min(from + pageSize, size);
+            List<Product> result = new ArrayList<>(to - from);
+            for (int k = from; k < to; k++) {
+                result.add(documents.get(ids[(int) order[k]]));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.dto.BulkIngestResult;
+import com.ecommerce.product.event.ProductChangedEvent;
+import com.ecommerce.product.model.Product;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Streams products from a JSON array or NDJSON body into the products table in JDBC
+ * batches. Ids are reserved from the identity sequence once per batch, so rows can be
+ * inserted with explicit ids and the driver can rewrite each batch into one multi-row
+ * INSERT. A batch that fails is retried row by row, so one bad row only fails itself.
+ */
+@Service
+public class ProductBulkIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductBulkIngestService.class);
+    private static final int MAX_REPORTED_FAILURES = 1000;
+
+    private static final String ALLOCATE_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('products', 'id')) FROM generate_series(1, ?)";
+    private static final String INSERT_SQL = "INSERT INTO products "
+            + "(id, name, description, price, stock_quantity, category, image_url, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${product.bulk.batch-size:500}")
+    private int batchSize;
+
+    public BulkIngestResult ingest(InputStream body) {
+        long start = System.currentTimeMillis();
+        BulkIngestResult result = new BulkIngestResult(0, 0, 0, 0, 0, new ArrayList<>());
+        List<Product> batch = new ArrayList<>(batchSize);
+        List<Long> batchIndexes = new ArrayList<>(batchSize);
+
+        // readValues unwraps a root-level JSON array and also accepts whitespace-separated NDJSON
+        try (MappingIterator<Product> rows = objectMapper.readerFor(Product.class).readValues(body)) {
+            while (rows.hasNextValue()) {
+                long index = result.getReceived();
+                result.setReceived(index + 1);
+                Product product = rows.nextValue();
+                String violation = validate(product);
+                if (violation != null) {
+                    recordFailure(result, index, violation);
+                    continue;
+                }
+                batch.add(product);
+                batchIndexes.add(index);
+                if (batch.size() == batchSize) {
+                    flush(batch, batchIndexes, result);
+                }
+            }
+        } catch (IOException e) {
+            // Everything parsed before the malformed input is kept
+            recordFailure(result, result.getReceived(), "Malformed input: " + e.getMessage());
+        }
+        flush(batch, batchIndexes, result);
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        result.setElapsedMs(elapsed);
+        result.setRowsPerSecond(result.getInserted() * 1000.0 / elapsed);
+        logger.info("Bulk ingest: {} received, {} inserted, {} failed in {} ms ({} rows/s)",
+                result.getReceived(), result.getInserted(), result.getFailed(), elapsed,
+                Math.round(result.getRowsPerSecond()));
+        return result;
+    }
+
+    private void flush(List<Product> batch, List<Long> batchIndexes, BulkIngestResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+            result.setInserted(result.getInserted() + batch.size());
+        } catch (DataAccessException e) {
+            logger.warn("Batch of {} products failed, retrying row by row: {}", batch.size(), e.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                List<Product> single = List.of(batch.get(i));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(single));
+                    result.setInserted(result.getInserted() + 1);
+                } catch (DataAccessException rowError) {
+                    recordFailure(result, batchIndexes.get(i), rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        evictCollections();
+        batch.clear();
+        batchIndexes.clear();
+    }
+
+    private void insert(List<Product> products) {
+        List<Long> ids = jdbcTemplate.queryForList(ALLOCATE_IDS_SQL, Long.class, products.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            p.setId(ids.get(i));
+            args.add(new Object[] { p.getId(), p.getName(), p.getDescription(), p.getPrice(),
+                    p.getStockQuantity(), p.getCategory(), p.getImage(), now, now });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, args);
+        for (Product p : products) {
+            p.setCreatedAt(now.toLocalDateTime());
+            p.setUpdatedAt(now.toLocalDateTime());
+            // Delivered after commit, so the in-memory indexes only see committed rows
+            eventPublisher.publishEvent(ProductChangedEvent.upserted(p));
+        }
+    }
+
+    /** Once per batch rather than once per row; the in-stock list is patched from the row events. */
+    private void evictCollections() {
+        Cache pages = cacheManager.getCache(ProductService.PAGE_CACHE_NAME);
+        if (pages != null) {
+            pages.clear();
+        }
+    }
+
+    private String validate(Product product) {
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static void recordFailure(BulkIngestResult result, long index, String error) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getFailures().size() < MAX_REPORTED_FAILURES) {
+            result.getFailures().add(new BulkIngestResult.RowFailure(index, error));
+        }
+    }
+}
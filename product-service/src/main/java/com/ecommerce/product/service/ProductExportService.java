@@ -0,0 +1,61 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.model.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole catalog as NDJSON straight from a database cursor. Rows arrive
+ * {@value ProductRepository#EXPORT_FETCH_SIZE} at a time and the persistence context is
+ * cleared after each window, so memory stays flat however large the table is.
+ */
+@Service
+public class ProductExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductExportService.class);
+    private static final int FETCH_SIZE = Integer.parseInt(ProductRepository.EXPORT_FETCH_SIZE);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /** Postgres only uses a server-side cursor inside a transaction, hence readOnly rather than none. */
+    @Transactional(readOnly = true)
+    public long export(OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        long exported = 0;
+        try (Stream<Product> products = productRepository.streamAllByOrderById();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Iterator<Product> rows = products.iterator();
+            while (rows.hasNext()) {
+                generator.writeObject(rows.next());
+                generator.writeRaw('\n');
+                if (++exported % FETCH_SIZE == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+        }
+        logger.info("Exported {} products in {} ms", exported, System.currentTimeMillis() - start);
+        return exported;
+    }
+}
@@ -1,18 +1,32 @@
 package com.ecommerce.product.service;
 
+import com.ecommerce.product.cache.InStockCacheMaintainer;
+import com.ecommerce.product.dto.CategoryFacet;
+import com.ecommerce.product.dto.ProductPage;
+import com.ecommerce.product.event.ProductChangedEvent;
 import com.ecommerce.product.exception.ProductNotFoundException;
 import com.ecommerce.product.model.Product;
 import com.ecommerce.product.repository.ProductRepository;
+import com.ecommerce.product.search.CategoryIndex;
+import com.ecommerce.product.search.ProductSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 @Service
@@ -20,43 +34,90 @@ import java.util.List;
 public class ProductService {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
-    private static final String CACHE_NAME = "products";
+    public static final String CACHE_NAME = "products";
+    public static final String PAGE_CACHE_NAME = "product-pages";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    public static final int MAX_SEARCH_PAGE_SIZE = 100;
 
     @Autowired
     private ProductRepository productRepository;
 
-    @Cacheable(value = CACHE_NAME, key = "'all'")
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private CategoryIndex categoryIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private InStockCacheMaintainer inStockCache;
+
+    /**
+     * Returns the products with id greater than {@code afterId}, in id order. Each page is
+     * cached under its own cursor so no single cache entry grows with the catalog.
+     */
+    @Cacheable(value = PAGE_CACHE_NAME, key = "#afterId + ':' + #size", sync = true)
     @Transactional(readOnly = true)
-    public List<Product> getAllProducts() {
-        logger.info("Cache MISS - Fetching all products from database");
-        return productRepository.findAll();
+    public ProductPage getProductPage(long afterId, int size) {
+        validatePageSize(size);
+        return toPage(productRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size + 1)), size);
     }
 
-    @Cacheable(value = CACHE_NAME, key = "#id")
+    /**
+     * Keyset page of one category. Ids come from the in-memory category index, so the
+     * database only serves primary-key lookups for the page itself.
+     */
+    @Cacheable(value = PAGE_CACHE_NAME, sync = true,
+            key = "'category:' + #category.toLowerCase() + ':' + #afterId + ':' + #size")
+    @Transactional(readOnly = true)
+    public ProductPage getProductsByCategory(String category, long afterId, int size) {
+        validatePageSize(size);
+        if (!categoryIndex.isReady()) {
+            return toPage(productRepository.findByCategoryIgnoreCaseAndIdGreaterThanOrderByIdAsc(
+                    category, afterId, Limit.of(size + 1)), size);
+        }
+        List<Long> ids = Arrays.stream(categoryIndex.idsAfter(category, afterId, size + 1)).boxed().toList();
+        List<Product> rows = new ArrayList<>(productRepository.findAllById(ids));
+        rows.sort(Comparator.comparing(Product::getId));
+        return toPage(rows, size);
+    }
+
+    public List<CategoryFacet> getCategoryFacets() {
+        return categoryIndex.facets();
+    }
+
+    @Cacheable(value = CACHE_NAME, key = "#id", sync = true)
     @Transactional(readOnly = true)
     public Product getProductById(Long id) {
-        logger.info("Cache MISS - Fetching product {} from database", id);
         return productRepository.findById(id)
                 .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + id));
     }
 
-    @Cacheable(value = CACHE_NAME, key = "'instock'")
+    /** Served from a Redis hash patched per product change rather than a cached list. */
     @Transactional(readOnly = true)
     public List<Product> getProductsInStock() {
-        logger.info("Cache MISS - Fetching in-stock products from database");
-        return productRepository.findAllInStock();
+        return inStockCache.inStock();
     }
 
-    @CacheEvict(value = CACHE_NAME, key = "'all'")
+    @CacheEvict(value = PAGE_CACHE_NAME, allEntries = true)
     public Product createProduct(Product product) {
         logger.info("Creating new product: {}", product.getName());
         Product saved = productRepository.save(product);
         logger.info("Product created with id: {}", saved.getId());
+        eventPublisher.publishEvent(ProductChangedEvent.upserted(saved));
         return saved;
     }
 
     @Caching(put = { @CachePut(value = CACHE_NAME, key = "#id") }, evict = {
-            @CacheEvict(value = CACHE_NAME, key = "'all'") })
+            @CacheEvict(value = PAGE_CACHE_NAME, allEntries = true) })
     public Product updateProduct(Long id, Product updatedProduct) {
         Product existing = productRepository.findById(id)
                 .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + id));
@@ -65,13 +126,15 @@ public class ProductService {
         existing.setPrice(updatedProduct.getPrice());
         existing.setStockQuantity(updatedProduct.getStockQuantity());
         logger.info("Updating product with id: {}", id);
-        return productRepository.save(existing);
+        // Flushed so @PreUpdate has stamped updatedAt before the event and the cache carry it
+        Product saved = productRepository.saveAndFlush(existing);
+        eventPublisher.publishEvent(ProductChangedEvent.upserted(saved));
+        return saved;
     }
 
     @Caching(evict = {
             @CacheEvict(value = CACHE_NAME, key = "#id"),
-            @CacheEvict(value = CACHE_NAME, key = "'all'"),
-            @CacheEvict(value = CACHE_NAME, key = "'instock'")
+            @CacheEvict(value = PAGE_CACHE_NAME, allEntries = true)
     })
     public void deleteProduct(Long id) {
         if (!productRepository.existsById(id)) {
@@ -79,21 +142,65 @@ public class ProductService {
         }
         logger.info("Deleting product with id: {}", id);
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
     }
 
+    /**
+     * Ranked search over name, category and description. Served from the in-memory index;
+     * falls back to a name LIKE query only while the index is still being built.
+     */
     @Transactional(readOnly = true)
-    public List<Product> searchProducts(String name) {
-        return productRepository.findByNameContainingIgnoreCase(name);
+    public List<Product> searchProducts(String query, int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page must be >= 0 and size between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        if (searchIndex.isReady()) {
+            return searchIndex.search(query, page, size);
+        }
+        List<Product> matches = productRepository.findByNameContainingIgnoreCase(query);
+        int from = (int) Math.min((long) page * size, matches.size());
+        return matches.subList(from, Math.min(from + size, matches.size()));
     }
 
+    /**
+     * Atomically takes {@code quantity} units if enough stock remains, so concurrent
+     * orders on the same SKU cannot oversell. Cached pages are only cleared when the
+     * product sells out; until then a page may show a few more units than remain.
+     */
+    @CacheEvict(value = CACHE_NAME, key = "#id")
     public boolean decreaseStock(Long id, int quantity) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + id));
-        if (product.getStockQuantity() < quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1");
+        }
+        LocalDateTime updatedAt = LocalDateTime.now();
+        Integer remaining = productRepository.decrementStock(id, quantity, updatedAt);
+        if (remaining == null) {
+            if (!productRepository.existsById(id)) {
+                throw new ProductNotFoundException("Product not found with id: " + id);
+            }
             return false;
         }
-        product.setStockQuantity(product.getStockQuantity() - quantity);
-        productRepository.save(product);
+        if (remaining == 0) {
+            Cache pages = cacheManager.getCache(PAGE_CACHE_NAME);
+            if (pages != null) {
+                pages.clear();
+            }
+        }
+        eventPublisher.publishEvent(ProductChangedEvent.stockChanged(id, remaining + quantity, remaining, updatedAt));
         return true;
     }
+
+    private static void validatePageSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private static ProductPage toPage(List<Product> rows, int size) {
+        if (rows.size() <= size) {
+            return new ProductPage(rows, null);
+        }
+        List<Product> items = new ArrayList<>(rows.subList(0, size));
+        return new ProductPage(items, items.get(size - 1).getId());
+    }
 }
@@ -0,0 +1,406 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.dto.StockReservationRequest;
+import com.ecommerce.product.dto.StockReservationResult;
+import com.ecommerce.product.event.ProductChangedEvent;
+import com.ecommerce.product.exception.ProductNotFoundException;
+import com.ecommerce.product.inventory.InventoryEngine;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reserves stock for every line of an order in one call: either all lines are taken or
+ * none is. Hot products come out of the {@link InventoryEngine}; the rest are locked in
+ * id order (so concurrent multi-line orders cannot deadlock), checked, and decremented
+ * with one batched UPDATE in the same transaction. Prices are read from the locked rows,
+ * so they are the prices in force when the stock was taken. Rows of hot products are read
+ * without a lock, so a flash sale does not queue its orders on one row again.
+ *
+ * <p>A reservation made with a client-generated id is recorded with its result in that
+ * transaction, so a retry returns the first result, and a caller that never learned the
+ * outcome can give the stock back by releasing the id.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    public static final int MAX_LINES = 100;
+
+    private static final String READ_SQL = "SELECT id, name, price, stock_quantity FROM products "
+            + "WHERE id = ANY(?::bigint[])";
+    private static final String LOCK_SQL = READ_SQL + " ORDER BY id FOR UPDATE";
+    private static final String TAKE_SQL = "UPDATE products p SET stock_quantity = p.stock_quantity - r.units, "
+            + "updated_at = ? FROM unnest(?::bigint[], ?::int[]) AS r(id, units) WHERE p.id = r.id "
+            + "RETURNING p.id, p.stock_quantity";
+    private static final String RESTORE_SQL = "UPDATE products p SET stock_quantity = p.stock_quantity + r.units, "
+            + "updated_at = ? FROM unnest(?::bigint[], ?::int[]) AS r(id, units) WHERE p.id = r.id "
+            + "RETURNING p.id, p.stock_quantity";
+    private static final String RECORD_RELEASE_SQL = "INSERT INTO stock_releases (request_id, released_at) "
+            + "VALUES (?, ?) ON CONFLICT (request_id) DO NOTHING";
+    private static final String PURGE_RELEASES_SQL = "DELETE FROM stock_releases WHERE released_at < ?";
+    private static final String CLAIM_RESERVATION_SQL = "INSERT INTO stock_reservations "
+            + "(reservation_id, reserved, released, result, created_at) VALUES (?, ?, ?, ?, ?) "
+            + "ON CONFLICT (reservation_id) DO NOTHING";
+    private static final String RECORD_RESERVATION_SQL = "UPDATE stock_reservations SET reserved = ?, result = ? "
+            + "WHERE reservation_id = ?";
+    private static final String FIND_RESERVATION_SQL = "SELECT reserved, released, result FROM stock_reservations "
+            + "WHERE reservation_id = ?";
+    private static final String MARK_RELEASED_SQL = "UPDATE stock_reservations SET released = true "
+            + "WHERE reservation_id = ?";
+    private static final String PURGE_RESERVATIONS_SQL = "DELETE FROM stock_reservations WHERE created_at < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${product.reservations.release-key-retention:7d}")
+    private Duration releaseKeyRetention;
+
+    /**
+     * Takes every line or none. With a {@code reservationId} the reservation is made at
+     * most once: a repeated id returns the recorded result without touching stock, and an
+     * id already released returns a failed reservation with no lines.
+     */
+    public StockReservationResult reserve(String reservationId, List<StockReservationRequest.Line> lines) {
+        Map<Long, Integer> units = merge(lines);
+        if (reservationId != null) {
+            StockReservationResult recorded = recordedReservation(reservationId, false);
+            if (recorded != null) {
+                logger.info("Reservation {} was already made", reservationId);
+                return recorded;
+            }
+        }
+        Map<Long, Integer> fromEngine = new LinkedHashMap<>();
+        Map<Long, Integer> fromDatabase = new LinkedHashMap<>();
+        boolean engineShort = false;
+        for (Map.Entry<Long, Integer> line : units.entrySet()) {
+            InventoryEngine.Reservation reservation = engineShort
+                    ? InventoryEngine.Reservation.NOT_MANAGED
+                    : inventoryEngine.reserve(line.getKey(), line.getValue());
+            switch (reservation) {
+                case RESERVED -> fromEngine.put(line.getKey(), line.getValue());
+                case INSUFFICIENT_STOCK -> engineShort = true;
+                case NOT_MANAGED -> fromDatabase.put(line.getKey(), line.getValue());
+            }
+        }
+
+        Map<Long, ProductRow> rows;
+        LocalDateTime updatedAt = LocalDateTime.now();
+        StockReservationResult[] replayed = new StockReservationResult[1];
+        try {
+            boolean takeFromDatabase = !engineShort;
+            rows = transactionTemplate.execute(status -> {
+                // Waits for a concurrent call with the same id, then sees its row
+                if (reservationId != null && jdbcTemplate.update(CLAIM_RESERVATION_SQL, reservationId, false, false,
+                        "", Timestamp.valueOf(updatedAt)) == 0) {
+                    replayed[0] = recordedReservation(reservationId, true);
+                    return null;
+                }
+                Map<Long, ProductRow> locked = read(units.keySet(),
+                        takeFromDatabase ? fromDatabase.keySet() : List.of());
+                if (takeFromDatabase && !fromDatabase.isEmpty() && hasStock(locked, fromDatabase)) {
+                    take(fromDatabase, locked, updatedAt);
+                }
+                if (reservationId != null) {
+                    boolean taken = takeFromDatabase
+                            && fromDatabase.keySet().stream().allMatch(id -> locked.get(id).taken);
+                    jdbcTemplate.update(RECORD_RESERVATION_SQL, taken, toJson(toResult(taken, units, locked)),
+                            reservationId);
+                }
+                return locked;
+            });
+        } catch (RuntimeException e) {
+            cancelInEngine(fromEngine);
+            throw e;
+        }
+        if (rows == null) {
+            cancelInEngine(fromEngine);
+            logger.info("Reservation {} was already made", reservationId);
+            return replayed[0];
+        }
+
+        boolean reserved = !engineShort && fromDatabase.keySet().stream().allMatch(id -> rows.get(id).taken);
+        if (!reserved) {
+            cancelInEngine(fromEngine);
+        } else {
+            stockMoved(fromDatabase.keySet(), fromDatabase.keySet().stream().anyMatch(id -> rows.get(id).stock == 0));
+        }
+        return toResult(reserved, units, rows);
+    }
+
+    /**
+     * Gives back the units of a reservation whose order could not be completed or was
+     * cancelled. With a {@code requestId} the release is applied at most once: the key is
+     * recorded in the transaction that restores the database stock, and a repeated key
+     * returns false without touching stock. With a {@code reservationId} the units
+     * recorded for that reservation are given back instead of {@code lines}, once; if it
+     * was never made, it is marked released so it is refused when it arrives. Units of hot
+     * products go back to the engine after that transaction commits.
+     */
+    public boolean release(String requestId, String reservationId, List<StockReservationRequest.Line> lines) {
+        Map<Long, Integer> requested = merge(lines);
+        Map<Long, Integer> toEngine = new LinkedHashMap<>();
+        Map<Long, Integer> toDatabase = new LinkedHashMap<>();
+
+        LocalDateTime updatedAt = LocalDateTime.now();
+        boolean[] restocked = new boolean[1];
+        Boolean applied = transactionTemplate.execute(status -> {
+            if (requestId != null
+                    && jdbcTemplate.update(RECORD_RELEASE_SQL, requestId, Timestamp.valueOf(updatedAt)) == 0) {
+                return false;
+            }
+            Map<Long, Integer> units = reservationId != null ? takeBack(reservationId, updatedAt) : requested;
+            if (units.isEmpty()) {
+                return false;
+            }
+            units.forEach((productId, quantity) ->
+                    (inventoryEngine.visibleStock(productId).isPresent() ? toEngine : toDatabase)
+                            .put(productId, quantity));
+            if (!toDatabase.isEmpty()) {
+                jdbcTemplate.query(con -> batch(con.prepareStatement(RESTORE_SQL), con, toDatabase, updatedAt),
+                        (RowCallbackHandler) rs -> {
+                            int stock = rs.getInt("stock_quantity");
+                            ProductChangedEvent event = ProductChangedEvent.stockChanged(rs.getLong("id"),
+                                    stock - toDatabase.get(rs.getLong("id")), stock, updatedAt);
+                            // Back from zero when the restored units are all there is
+                            restocked[0] |= event.crossedZero();
+                            eventPublisher.publishEvent(event);
+                        });
+            }
+            return true;
+        });
+        if (!Boolean.TRUE.equals(applied)) {
+            logger.info("Release {} was already applied or had nothing to give back",
+                    requestId != null ? requestId : reservationId);
+            return false;
+        }
+        stockMoved(toDatabase.keySet(), restocked[0]);
+        cancelInEngine(toEngine);
+        logger.info("Released reservation of {} products", toEngine.size() + toDatabase.size());
+        return true;
+    }
+
+    /** Release keys only need to outlive order-service's retries. */
+    @Scheduled(fixedDelayString = "${product.reservations.release-key-purge-interval:PT1H}")
+    public void purgeReleaseKeys() {
+        int purged = jdbcTemplate.update(PURGE_RELEASES_SQL,
+                Timestamp.valueOf(LocalDateTime.now().minus(releaseKeyRetention)));
+        purged += jdbcTemplate.update(PURGE_RESERVATIONS_SQL,
+                Timestamp.valueOf(LocalDateTime.now().minus(releaseKeyRetention)));
+        if (purged > 0) {
+            logger.info("Purged {} release and reservation keys older than {}", purged, releaseKeyRetention);
+        }
+    }
+
+    /** The result recorded for {@code reservationId}, or null when there is none. */
+    private StockReservationResult recordedReservation(String reservationId, boolean forUpdate) {
+        List<String> results = jdbcTemplate.query(forUpdate ? FIND_RESERVATION_SQL + " FOR UPDATE" : FIND_RESERVATION_SQL,
+                (rs, rowNum) -> rs.getString("result"), reservationId);
+        return results.isEmpty() ? null : fromJson(results.get(0));
+    }
+
+    /**
+     * Marks the reservation released and returns its units, or nothing when it failed or
+     * was already released. A reservation not made yet gets a released row, so it is
+     * refused if it arrives after all.
+     */
+    private Map<Long, Integer> takeBack(String reservationId, LocalDateTime now) {
+        String refused = toJson(new StockReservationResult(false, List.of()));
+        if (jdbcTemplate.update(CLAIM_RESERVATION_SQL, reservationId, false, true, refused,
+                Timestamp.valueOf(now)) == 1) {
+            logger.info("Reservation {} released before it was made; it will be refused", reservationId);
+            return Map.of();
+        }
+        List<StockReservationResult> reservations = jdbcTemplate.query(FIND_RESERVATION_SQL + " FOR UPDATE",
+                (rs, rowNum) -> rs.getBoolean("reserved") && !rs.getBoolean("released")
+                        ? fromJson(rs.getString("result")) : null,
+                reservationId);
+        if (reservations.isEmpty() || reservations.get(0) == null) {
+            return Map.of();
+        }
+        jdbcTemplate.update(MARK_RELEASED_SQL, reservationId);
+        Map<Long, Integer> units = new LinkedHashMap<>();
+        reservations.get(0).getLines().forEach(line ->
+                units.merge(line.getProductId(), line.getQuantity(), Integer::sum));
+        return units;
+    }
+
+    private String toJson(StockReservationResult result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not record reservation", e);
+        }
+    }
+
+    private StockReservationResult fromJson(String result) {
+        try {
+            return objectMapper.readValue(result, StockReservationResult.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read recorded reservation", e);
+        }
+    }
+
+    /** Rows of every product in {@code productIds}; only those in {@code toLock} are locked. */
+    private Map<Long, ProductRow> read(Collection<Long> productIds, Collection<Long> toLock) {
+        Map<Long, ProductRow> rows = new HashMap<>();
+        if (!toLock.isEmpty()) {
+            query(LOCK_SQL, toLock, rows);
+        }
+        List<Long> unlocked = productIds.stream().filter(id -> !toLock.contains(id)).toList();
+        if (!unlocked.isEmpty()) {
+            query(READ_SQL, unlocked, rows);
+        }
+        for (Long productId : productIds) {
+            if (!rows.containsKey(productId)) {
+                throw new ProductNotFoundException("Product not found with id: " + productId);
+            }
+        }
+        return rows;
+    }
+
+    private void query(String sql, Collection<Long> productIds, Map<Long, ProductRow> rows) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("bigint", productIds.toArray(new Long[0])));
+            return ps;
+        }, (RowCallbackHandler) rs -> rows.put(rs.getLong("id"),
+                new ProductRow(rs.getString("name"), rs.getBigDecimal("price"), rs.getInt("stock_quantity"))));
+    }
+
+    private static boolean hasStock(Map<Long, ProductRow> locked, Map<Long, Integer> wanted) {
+        return wanted.entrySet().stream().allMatch(line -> locked.get(line.getKey()).stock >= line.getValue());
+    }
+
+    private void take(Map<Long, Integer> units, Map<Long, ProductRow> locked, LocalDateTime updatedAt) {
+        jdbcTemplate.query(con -> batch(con.prepareStatement(TAKE_SQL), con, units, updatedAt),
+                (RowCallbackHandler) rs -> {
+                    ProductRow row = locked.get(rs.getLong("id"));
+                    int previous = row.stock;
+                    row.stock = rs.getInt("stock_quantity");
+                    row.taken = true;
+                    // Listeners run after commit, like the single-line decrement
+                    eventPublisher.publishEvent(
+                            ProductChangedEvent.stockChanged(rs.getLong("id"), previous, row.stock, updatedAt));
+                });
+    }
+
+    private static PreparedStatement batch(PreparedStatement ps, Connection con, Map<Long, Integer> units,
+            LocalDateTime updatedAt) throws SQLException {
+        ps.setTimestamp(1, Timestamp.valueOf(updatedAt));
+        ps.setArray(2, con.createArrayOf("bigint", units.keySet().toArray(new Long[0])));
+        ps.setArray(3, con.createArrayOf("integer", units.values().toArray(new Integer[0])));
+        return ps;
+    }
+
+    private void cancelInEngine(Map<Long, Integer> fromEngine) {
+        fromEngine.forEach((productId, quantity) -> {
+            if (!inventoryEngine.cancel(productId, quantity)) {
+                // Released from memory meanwhile; its lease went back to the database without these units
+                release(null, null, List.of(new StockReservationRequest.Line(productId, quantity)));
+            }
+        });
+    }
+
+    /**
+     * Same invalidation as the single-line decrement: the product entries, and the cached
+     * pages only when a product sold out or came back into stock.
+     */
+    private void stockMoved(Collection<Long> productIds, boolean crossedZero) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        Cache products = cacheManager.getCache(ProductService.CACHE_NAME);
+        if (products != null) {
+            productIds.forEach(products::evict);
+        }
+        Cache pages = crossedZero ? cacheManager.getCache(ProductService.PAGE_CACHE_NAME) : null;
+        if (pages != null) {
+            pages.clear();
+        }
+    }
+
+    /** Stock is what is left after the reservation, or what was available when it failed. */
+    private StockReservationResult toResult(boolean reserved, Map<Long, Integer> units, Map<Long, ProductRow> rows) {
+        List<StockReservationResult.Line> result = new ArrayList<>(units.size());
+        units.forEach((productId, quantity) -> {
+            ProductRow row = rows.get(productId);
+            // For hot products the row only shows what is not leased to the engine
+            int available = inventoryEngine.visibleStock(productId).orElse(row.stock);
+            result.add(new StockReservationResult.Line(productId, row.name, row.price, quantity, available));
+        });
+        return new StockReservationResult(reserved, result);
+    }
+
+    /** Sums repeated products, keeping the order in which they first appear. */
+    private static Map<Long, Integer> merge(List<StockReservationRequest.Line> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("At least one line is required");
+        }
+        if (lines.size() > MAX_LINES) {
+            throw new IllegalArgumentException("At most " + MAX_LINES + " lines per reservation");
+        }
+        Map<Long, Integer> units = new LinkedHashMap<>();
+        for (StockReservationRequest.Line line : lines) {
+            if (line.getProductId() == null || line.getQuantity() == null || line.getQuantity() < 1) {
+                throw new IllegalArgumentException("Every line needs a product ID and a quantity of at least 1");
+            }
+            units.merge(line.getProductId(), line.getQuantity(), Math::addExact);
+        }
+        return units;
+    }
+
+    private static final class ProductRow {
+        private final String name;
+        private final BigDecimal price;
+        private int stock;
+        private boolean taken;
+
+        private ProductRow(String name, BigDecimal price, int stock) {
+            this.name = name;
+            this.price = price;
+            this.stock = stock;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.ecommerce.product.cache;
+
+import com.ecommerce.product.dto.ProductPage;
+import com.ecommerce.product.model.Product;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON against the compact serializer on the values the product cache holds: one product,
+ * a catalog page of 50 and a list of 500. Prints the stored size of each, then time per
+ * operation and, from the GC profiler, bytes allocated per operation ({@code gc.alloc.rate.norm}).
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) \
+ *     com.ecommerce.product.cache.ProductCacheSerializerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductCacheSerializerBenchmark {
+
+    private static final String[] CATEGORIES = {"Electronics", "Books", "Home", "Garden", "Toys", "Sports"};
+
+    @Param({"product", "page", "list"})
+    private String payload;
+
+    @Param({"json", "compact"})
+    private String serializer;
+
+    private RedisSerializer<Object> codec;
+    private Object value;
+    private byte[] stored;
+
+    @Setup
+    public void setUp() {
+        codec = serializer(serializer);
+        value = payload(payload);
+        stored = codec.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return codec.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return codec.deserialize(stored);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        System.out.printf("%-8s %10s %10s%n", "payload", "json", "compact");
+        for (String payload : new String[] {"product", "page", "list"}) {
+            Object value = payload(payload);
+            System.out.printf("%-8s %10d %10d%n", payload, serializer("json").serialize(value).length,
+                    serializer("compact").serialize(value).length);
+        }
+        new Runner(new OptionsBuilder()
+                .include(ProductCacheSerializerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /** As RedisConfig builds them, with the default compression threshold. */
+    private static RedisSerializer<Object> serializer(String name) {
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+        json.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+        return "compact".equals(name) ? new ProductCacheSerializer(json, 1024) : json;
+    }
+
+    private static Object payload(String name) {
+        return switch (name) {
+            case "product" -> product(1);
+            case "page" -> new ProductPage(products(50), 50L);
+            case "list" -> products(500);
+            default -> throw new IllegalArgumentException(name);
+        };
+    }
+
+    private static List<Product> products(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            products.add(product(i));
+        }
+        return products;
+    }
+
+    private static Product product(long id) {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 9, 0).plusMinutes(id * 7);
+        return Product.builder()
+                .id(id)
+                .name("Product " + id + " wireless edition")
+                .description("A durable, everyday product with a two-year warranty. Item " + id
+                        + " ships in recyclable packaging and is covered by free returns within 30 days.")
+                .price(BigDecimal.valueOf(1999 + id * 37 % 5000, 2))
+                .stockQuantity((int) (id * 13 % 250))
+                .category(CATEGORIES[(int) (id % CATEGORIES.length)])
+                .image("https://cdn.example.com/products/" + id + "/main.jpg")
+                .createdAt(createdAt)
+                .updatedAt(createdAt.plusDays(id % 30))
+                .build();
+    }
+}